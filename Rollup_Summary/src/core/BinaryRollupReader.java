@@ -0,0 +1,368 @@
+package core;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+
+/**
+ * Reads a ROLLUP summary written by a {@link BinaryRollupSink}, and iterates
+ * over its rows (groups) in ROLLUP summary order. <p>
+ * 
+ * The constructor reads only the column names.  The rows are read one block
+ * at a time, as {@link #next} reaches them, so memory use is proportional to
+ * the block size and the grouping columns' dictionaries (not to the size of
+ * the ROLLUP summary). <p>
+ * 
+ * Usage:
+ * 
+ * <pre>
+ * while (reader.next())
+ * {
+ *     reader.getLevel();
+ *     reader.getGroupingColumnValue(0);
+ *     reader.getValue();
+ * }
+ * </pre>
+ * 
+ * @author Dylan Jacobs
+ */
+public class BinaryRollupReader
+{
+    /**
+     * The stream to read the ROLLUP summary from
+     */
+    private final DataInputStream dataInputStream;
+    
+    /**
+     * The names of the grouping columns, in grouping order
+     */
+    private final String[] groupingColumnNames;
+    
+    /**
+     * The name of the 'value' column
+     */
+    private final String valueColumnName;
+    
+    /**
+     * Each grouping column's dictionary, as read so far
+     */
+    private final ArrayList<ArrayList<String>> dictionaries;
+    
+    /**
+     * The number of rows (groups) in the current block
+     */
+    private int numRows;
+    
+    /**
+     * The current block's level column: the number of grouping column values
+     * that define each row's group
+     */
+    private byte[] levels = new byte[0];
+    
+    /**
+     * The current block's code column, for each grouping column (0 means
+     * aggregated, C means the dictionary's (C-1)th value)
+     */
+    private int[][] codes;
+    
+    /**
+     * The current block's value column
+     */
+    private double[] values = new double[0];
+    
+    /**
+     * The current row's index in the current block
+     */
+    private int row = -1;
+    
+    /**
+     * Whether the end marker has been read
+     */
+    private boolean ended;
+    
+    
+    /**
+     * Create a new {@link BinaryRollupReader}, and read a ROLLUP summary's
+     * column names
+     * 
+     * @param inputStream
+     * The stream to read the ROLLUP summary from.  Not closed.
+     * 
+     * @throws IOException If an error occurred while reading
+     * 
+     * @throws RuntimeException
+     * If the stream does not contain a binary ROLLUP summary of a supported
+     * version
+     */
+    public BinaryRollupReader(InputStream inputStream) throws IOException
+    {
+        dataInputStream =
+            new DataInputStream(new BufferedInputStream(inputStream));
+        
+        if (dataInputStream.readInt() != BinaryRollupSink.MAGIC)
+        {
+            throw new RuntimeException(
+                "Input data invalid: Not a binary ROLLUP summary");
+        }
+        
+        int version = dataInputStream.readInt();
+        
+        if (version != BinaryRollupSink.VERSION)
+        {
+            throw new RuntimeException(
+                "Input data invalid: Unsupported binary ROLLUP summary " +
+                "version " +
+                version);
+        }
+        
+        int numGroupingColumns = dataInputStream.readInt();
+        
+        if (numGroupingColumns < 0 ||
+            numGroupingColumns > BinaryRollupSink.MAX_GROUPING_COLUMNS)
+        {
+            throw new RuntimeException(
+                "Input data invalid: Unsupported number of grouping columns " +
+                numGroupingColumns);
+        }
+        
+        groupingColumnNames = new String[numGroupingColumns];
+        
+        for (int i = 0; i < numGroupingColumns; i++)
+        {
+            groupingColumnNames[i] = dataInputStream.readUTF();
+        }
+        
+        valueColumnName = dataInputStream.readUTF();
+        
+        dictionaries = new ArrayList<ArrayList<String>>(numGroupingColumns);
+        
+        for (int i = 0; i < numGroupingColumns; i++)
+        {
+            dictionaries.add(new ArrayList<String>());
+        }
+        
+        codes = new int[numGroupingColumns][0];
+    }
+    
+    
+    /**
+     * Read the next block, or the end marker
+     * 
+     * @return True if a block was read, false if the end marker was read
+     * 
+     * @throws IOException If an error occurred while reading
+     * 
+     * @throws RuntimeException If the block is invalid
+     */
+    private boolean readBlock() throws IOException
+    {
+        int blockNumRows = dataInputStream.readInt();
+        
+        if (blockNumRows == 0)
+        {
+            return false;
+        }
+        
+        if (blockNumRows < 0)
+        {
+            throw new RuntimeException(
+                "Input data invalid: A block has a negative number of rows");
+        }
+        
+        if (blockNumRows > values.length)
+        {
+            levels = new byte[blockNumRows];
+            values = new double[blockNumRows];
+            
+            for (int i = 0; i < codes.length; i++)
+            {
+                codes[i] = new int[blockNumRows];
+            }
+        }
+        
+        numRows = blockNumRows;
+        
+        dataInputStream.readFully(levels, 0, numRows);
+        
+        for (int i = 0; i < codes.length; i++)
+        {
+            readCodeColumn(i);
+        }
+        
+        for (int i = 0; i < numRows; i++)
+        {
+            values[i] = dataInputStream.readDouble();
+        }
+        
+        return true;
+    }
+    
+    
+    /**
+     * Read the values added to a grouping column's dictionary, and the current
+     * block's code width and code column for the grouping column
+     * 
+     * @param column
+     * The grouping column's index, in grouping order
+     * 
+     * @throws IOException If an error occurred while reading
+     * 
+     * @throws RuntimeException
+     * If the number of added values is negative, the code width is not 1, 2
+     * or 4 bytes, or a code is not in the dictionary
+     */
+    private void readCodeColumn(int column) throws IOException
+    {
+        ArrayList<String> dictionary = dictionaries.get(column);
+        
+        int numAddedValues = dataInputStream.readInt();
+        
+        if (numAddedValues < 0)
+        {
+            throw new RuntimeException(
+                "Input data invalid: Grouping column " +
+                column +
+                " has a negative number of dictionary values");
+        }
+        
+        for (int i = 0; i < numAddedValues; i++)
+        {
+            dictionary.add(dataInputStream.readUTF());
+        }
+        
+        int codeWidth = dataInputStream.readByte();
+        
+        if (codeWidth != 1 && codeWidth != 2 && codeWidth != 4)
+        {
+            throw new RuntimeException(
+                "Input data invalid: Grouping column " +
+                column +
+                " has an unsupported code width of " +
+                codeWidth +
+                " bytes");
+        }
+        
+        int dictionarySize = dictionary.size();
+        int[] columnCodes = codes[column];
+        
+        for (int i = 0; i < numRows; i++)
+        {
+            int code;
+            
+            switch (codeWidth)
+            {
+                case 1:
+                    code = dataInputStream.readUnsignedByte();
+                    break;
+                    
+                case 2:
+                    code = dataInputStream.readUnsignedShort();
+                    break;
+                    
+                default:
+                    code = dataInputStream.readInt();
+                    break;
+            }
+            
+            if (code < 0 || code > dictionarySize)
+            {
+                throw new RuntimeException(
+                    "Input data invalid: Grouping column " +
+                    column +
+                    " has a code that is not in its dictionary");
+            }
+            
+            columnCodes[i] = code;
+        }
+    }
+    
+    
+    /**
+     * @return {@link #groupingColumnNames}
+     */
+    public String[] getGroupingColumnNames()
+    {
+        return groupingColumnNames.clone();
+    }
+    
+    
+    /**
+     * @return {@link #valueColumnName}
+     */
+    public String getValueColumnName()
+    {
+        return valueColumnName;
+    }
+    
+    
+    /**
+     * Move to the next row (group), reading the next block if the current
+     * block has no more rows
+     * 
+     * @return True if there is a next row, false if all rows have been read
+     * 
+     * @throws IOException If an error occurred while reading
+     * 
+     * @throws RuntimeException If the next block is invalid
+     */
+    public boolean next() throws IOException
+    {
+        if (row + 1 < numRows)
+        {
+            row++;
+            return true;
+        }
+        
+        if (ended || ! readBlock())
+        {
+            ended = true;
+            numRows = 0;
+            row = -1;
+            return false;
+        }
+        
+        row = 0;
+        return true;
+    }
+    
+    
+    /**
+     * @return
+     * The number of grouping column values that define the current row's
+     * group (0 for the total)
+     */
+    public int getLevel()
+    {
+        return levels[row] & 0xFF;
+    }
+    
+    
+    /**
+     * @param column
+     * The grouping column's index, in grouping order
+     * 
+     * @return
+     * The current row's value of the grouping column, or null if the grouping
+     * column is aggregated in the current row
+     * 
+     * @throws IndexOutOfBoundsException If column is invalid
+     */
+    public String getGroupingColumnValue(int column)
+    {
+        int code = codes[column][row];
+        
+        return (code == 0) ? null : dictionaries.get(column).get(code - 1);
+    }
+    
+    
+    /**
+     * @return The current row's group sum
+     */
+    public double getValue()
+    {
+        return values[row];
+    }
+}
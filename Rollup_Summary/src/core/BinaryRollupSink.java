@@ -0,0 +1,360 @@
+package core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+
+/**
+ * A {@link RollupSink} that writes a ROLLUP summary in a compact, binary,
+ * columnar format, for reading by a {@link BinaryRollupReader}.  Values are
+ * not formatted as text. <p>
+ * 
+ * The rows (groups) are written in blocks, each of which is columnar, so the
+ * summary is streamed: a block is written (and the stream flushed) as soon as
+ * it fills, and only one block is held in memory at a time. <p>
+ * 
+ * The format (big-endian, as written by {@link DataOutputStream}) is: <br>
+ * 1) The magic number {@value #MAGIC} and format version {@value #VERSION}
+ *    (int, int) <br>
+ * 2) The number of grouping columns N (int), the grouping column names and
+ *    the 'value' column name (UTF) <br>
+ * 3) Any number of blocks, each made of: <br>
+ *    a) The number of rows (groups) R in the block (int, at least 1) <br>
+ *    b) The level column: the number of grouping column values that define
+ *       each row's group, from N for the smallest groups down to 0 for the
+ *       total (R unsigned bytes) <br>
+ *    c) For each grouping column: the number of values added to the
+ *       grouping column's dictionary by this block E (int), the added values
+ *       (UTF), the code width W in bytes (byte: 1, 2 or 4) and the code
+ *       column (R unsigned W-byte codes, where code 0 means the column is
+ *       aggregated in the row, and code C means the dictionary's (C-1)th
+ *       value).  Dictionaries grow from block to block: a value is added by
+ *       the first block that uses it. <br>
+ *    d) The value column: each row's group sum (R doubles) <br>
+ * 4) The end marker: a row count of 0 (int)
+ * 
+ * @author Dylan Jacobs
+ */
+public class BinaryRollupSink implements RollupSink
+{
+    /**
+     * The magic number that starts the binary ROLLUP summary format ("RLUP")
+     */
+    static final int MAGIC = 0x524C5550;
+    
+    /**
+     * The binary ROLLUP summary format version
+     */
+    static final int VERSION = 2;
+    
+    /**
+     * The maximum number of grouping columns (levels are stored as unsigned
+     * bytes)
+     */
+    static final int MAX_GROUPING_COLUMNS = 255;
+    
+    /**
+     * The default number of rows (groups) per block
+     */
+    static final int DEFAULT_BLOCK_SIZE = 4096;
+    
+    /**
+     * The stream to write the ROLLUP summary to
+     */
+    private final DataOutputStream dataOutputStream;
+    
+    /**
+     * The maximum number of rows (groups) per block
+     */
+    private final int blockSize;
+    
+    /**
+     * Each grouping column's dictionary, mapping each value to its code
+     */
+    private ArrayList<HashMap<String, Integer>> dictionaries;
+    
+    /**
+     * Each grouping column's values that were added to its dictionary since
+     * the last block was written, in code order
+     */
+    private ArrayList<ArrayList<String>> addedDictionaryValues;
+    
+    /**
+     * The number of rows (groups) in the current block
+     */
+    private int numRows;
+    
+    /**
+     * The current block's level column
+     */
+    private byte[] levels;
+    
+    /**
+     * The current block's code column, for each grouping column
+     */
+    private int[][] codes;
+    
+    /**
+     * The current block's value column
+     */
+    private double[] values;
+    
+    
+    /**
+     * Create a new {@link BinaryRollupSink} that writes blocks of
+     * {@value #DEFAULT_BLOCK_SIZE} rows
+     * 
+     * @param outputStream
+     * The stream to write the ROLLUP summary to.  Flushed, but not closed,
+     * after each block.
+     */
+    public BinaryRollupSink(OutputStream outputStream)
+    {
+        this(outputStream, DEFAULT_BLOCK_SIZE);
+    }
+    
+    
+    /**
+     * Create a new {@link BinaryRollupSink}
+     * 
+     * @param outputStream
+     * The stream to write the ROLLUP summary to.  Flushed, but not closed,
+     * after each block.
+     * 
+     * @param blockSize {@link #blockSize}
+     * 
+     * @throws RuntimeException If blockSize is less than 1
+     */
+    public BinaryRollupSink(OutputStream outputStream, int blockSize)
+    {
+        if (blockSize < 1)
+        {
+            throw new RuntimeException("The block size must be at least 1");
+        }
+        
+        this.dataOutputStream =
+            new DataOutputStream(new BufferedOutputStream(outputStream));
+        this.blockSize = blockSize;
+    }
+    
+    
+    @Override
+    public void beginSummary(
+        String[] groupingColumnNames,
+        String valueColumnName)
+    {
+        int numGroupingColumns = groupingColumnNames.length;
+        
+        if (numGroupingColumns > MAX_GROUPING_COLUMNS)
+        {
+            throw new RuntimeException(
+                "The binary ROLLUP summary format supports at most " +
+                MAX_GROUPING_COLUMNS +
+                " grouping columns");
+        }
+        
+        dictionaries =
+            new ArrayList<HashMap<String, Integer>>(numGroupingColumns);
+        addedDictionaryValues =
+            new ArrayList<ArrayList<String>>(numGroupingColumns);
+        
+        for (int i = 0; i < numGroupingColumns; i++)
+        {
+            dictionaries.add(new HashMap<String, Integer>());
+            addedDictionaryValues.add(new ArrayList<String>());
+        }
+        
+        numRows = 0;
+        levels = new byte[blockSize];
+        codes = new int[numGroupingColumns][blockSize];
+        values = new double[blockSize];
+        
+        try
+        {
+            dataOutputStream.writeInt(MAGIC);
+            dataOutputStream.writeInt(VERSION);
+            
+            dataOutputStream.writeInt(numGroupingColumns);
+            
+            for (String groupingColumnName : groupingColumnNames)
+            {
+                dataOutputStream.writeUTF(groupingColumnName);
+            }
+            
+            dataOutputStream.writeUTF(valueColumnName);
+        }
+        
+        catch (IOException e)
+        {
+            throw new RuntimeException(
+                "An error occurred while writing the binary ROLLUP summary",
+                e);
+        }
+    }
+    
+    
+    @Override
+    public void group(String[] groupingColumnValues, double sum)
+    {
+        int level = groupingColumnValues.length;
+        
+        levels[numRows] = (byte) level;
+        values[numRows] = sum;
+        
+        for (int i = 0; i < level; i++)
+        {
+            HashMap<String, Integer> dictionary = dictionaries.get(i);
+            
+            Integer code = dictionary.get(groupingColumnValues[i]);
+            
+            if (code == null)
+            {
+                code = dictionary.size() + 1;
+                dictionary.put(groupingColumnValues[i], code);
+                addedDictionaryValues.get(i).add(groupingColumnValues[i]);
+            }
+            
+            codes[i][numRows] = code;
+        }
+        
+        // Codes of aggregated grouping columns are left 0
+        for (int i = level; i < codes.length; i++)
+        {
+            codes[i][numRows] = 0;
+        }
+        
+        numRows++;
+        
+        if (numRows == blockSize)
+        {
+            writeBlock();
+        }
+    }
+    
+    
+    @Override
+    public void endSummary()
+    {
+        if (numRows > 0)
+        {
+            writeBlock();
+        }
+        
+        try
+        {
+            // The end marker
+            dataOutputStream.writeInt(0);
+            dataOutputStream.flush();
+        }
+        
+        catch (IOException e)
+        {
+            throw new RuntimeException(
+                "An error occurred while writing the binary ROLLUP summary",
+                e);
+        }
+    }
+    
+    
+    /**
+     * Write the current block, flush the stream and start a new block
+     */
+    private void writeBlock()
+    {
+        try
+        {
+            dataOutputStream.writeInt(numRows);
+            dataOutputStream.write(levels, 0, numRows);
+            
+            for (int i = 0; i < codes.length; i++)
+            {
+                writeCodeColumn(
+                    dictionaries.get(i).size(),
+                    addedDictionaryValues.get(i),
+                    codes[i]);
+            }
+            
+            for (int row = 0; row < numRows; row++)
+            {
+                dataOutputStream.writeDouble(values[row]);
+            }
+            
+            dataOutputStream.flush();
+        }
+        
+        catch (IOException e)
+        {
+            throw new RuntimeException(
+                "An error occurred while writing the binary ROLLUP summary",
+                e);
+        }
+        
+        numRows = 0;
+    }
+    
+    
+    /**
+     * Write the values added to a grouping column's dictionary, and the
+     * current block's code width and code column for the grouping column
+     * 
+     * @param dictionarySize
+     * The number of values in the grouping column's dictionary
+     * 
+     * @param addedValues
+     * The values added to the grouping column's dictionary since the last
+     * block was written, in code order.  Cleared.
+     * 
+     * @param columnCodes
+     * The grouping column's code column
+     * 
+     * @throws IOException If an error occurred while writing
+     */
+    private void writeCodeColumn(
+        int dictionarySize,
+        ArrayList<String> addedValues,
+        int[] columnCodes)
+        throws IOException
+    {
+        dataOutputStream.writeInt(addedValues.size());
+        
+        for (String addedValue : addedValues)
+        {
+            dataOutputStream.writeUTF(addedValue);
+        }
+        
+        addedValues.clear();
+        
+        // Use the narrowest code width that fits the largest code
+        
+        int codeWidth =
+            (dictionarySize <= 0xFF) ? 1 :
+            (dictionarySize <= 0xFFFF) ? 2 :
+            4;
+        
+        dataOutputStream.writeByte(codeWidth);
+        
+        for (int row = 0; row < numRows; row++)
+        {
+            int code = columnCodes[row];
+            
+            switch (codeWidth)
+            {
+                case 1:
+                    dataOutputStream.writeByte(code);
+                    break;
+                    
+                case 2:
+                    dataOutputStream.writeShort(code);
+                    break;
+                    
+                default:
+                    dataOutputStream.writeInt(code);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+
+/**
+ * A {@link RollupSink} that forwards only some groups of a ROLLUP summary to
+ * another {@link RollupSink}: the groups whose sums are at least a minimum
+ * sum, and of those, only the groups with the largest sums within each
+ * containing group.  When a group is dropped, the groups it contains are also
+ * dropped.  The sums of the forwarded groups, and the total, are unaffected. <p>
+ * 
+ * Groups are buffered in a bounded heap per grouping column until the group
+ * that contains them ends, so at most the forwarded groups are buffered.
+ * 
+ * @author Dylan Jacobs
+ */
+public class PruningRollupSink implements RollupSink
+{
+    /**
+     * A group that has not been dropped (yet), along with the groups it
+     * contains that have not been dropped
+     */
+    private static final class Group
+    {
+        /**
+         * The group's grouping column values
+         */
+        private final String[] groupingColumnValues;
+        
+        /**
+         * The group's sum
+         */
+        private final double sum;
+        
+        /**
+         * The group's position in the ROLLUP summary
+         */
+        private final long sequenceNumber;
+        
+        /**
+         * The groups contained by this group that have not been dropped, in
+         * ROLLUP summary order
+         */
+        private final ArrayList<Group> containedGroups;
+        
+        
+        /**
+         * Create a new {@link Group}
+         * 
+         * @param groupingColumnValues {@link #groupingColumnValues}
+         * @param sum {@link #sum}
+         * @param sequenceNumber {@link #sequenceNumber}
+         * @param containedGroups {@link #containedGroups}
+         */
+        private Group(
+            String[] groupingColumnValues,
+            double sum,
+            long sequenceNumber,
+            ArrayList<Group> containedGroups)
+        {
+            this.groupingColumnValues = groupingColumnValues;
+            this.sum = sum;
+            this.sequenceNumber = sequenceNumber;
+            this.containedGroups = containedGroups;
+        }
+    }
+    
+    
+    /**
+     * Orders {@link Group}s by ascending sum, and, for equal sums, by
+     * descending ROLLUP summary position, so that the head of a heap is the
+     * first group to drop
+     */
+    private static final Comparator<Group> DROP_ORDER = 
+        new Comparator<Group>()
+        {
+            @Override
+            public int compare(Group group1, Group group2)
+            {
+                int result = Double.compare(group1.sum, group2.sum);
+                
+                if (result != 0)
+                {
+                    return result;
+                }
+                
+                return Long.compare(
+                    group2.sequenceNumber, 
+                    group1.sequenceNumber);
+            }
+        };
+    
+    /**
+     * Orders {@link Group}s by ascending ROLLUP summary position
+     */
+    private static final Comparator<Group> SUMMARY_ORDER = 
+        new Comparator<Group>()
+        {
+            @Override
+            public int compare(Group group1, Group group2)
+            {
+                return Long.compare(
+                    group1.sequenceNumber, 
+                    group2.sequenceNumber);
+            }
+        };
+    
+    /**
+     * The {@link RollupSink} to forward groups to
+     */
+    private final RollupSink sink;
+    
+    /**
+     * The maximum number of groups forwarded per containing group
+     */
+    private final int maxGroupsPerContainingGroup;
+    
+    /**
+     * The minimum sum of a forwarded group
+     */
+    private final double minSum;
+    
+    /**
+     * For each grouping column, the groups (that have not been dropped) of
+     * that grouping column's containing group that is in progress
+     */
+    private final ArrayList<PriorityQueue<Group>> heaps = 
+        new ArrayList<PriorityQueue<Group>>();
+    
+    /**
+     * The number of groups received so far
+     */
+    private long numGroups;
+    
+    
+    /**
+     * Create a new {@link PruningRollupSink}
+     * 
+     * @param sink {@link #sink}
+     * @param maxGroupsPerContainingGroup {@link #maxGroupsPerContainingGroup}
+     * @param minSum {@link #minSum}
+     * 
+     * @throws RuntimeException If maxGroupsPerContainingGroup is less than 1
+     */
+    public PruningRollupSink(
+        RollupSink sink,
+        int maxGroupsPerContainingGroup,
+        double minSum)
+    {
+        if (maxGroupsPerContainingGroup < 1)
+        {
+            throw new RuntimeException(
+                "The maximum number of groups per containing group must be " +
+                "at least 1");
+        }
+        
+        this.sink = sink;
+        this.maxGroupsPerContainingGroup = maxGroupsPerContainingGroup;
+        this.minSum = minSum;
+    }
+    
+    
+    /**
+     * Remove the groups from a heap, and return them and the groups they
+     * contain, in ROLLUP summary order
+     * 
+     * @param heap The heap to remove the groups from
+     * 
+     * @return The groups from the heap and the groups they contain
+     */
+    private static ArrayList<Group> drain(PriorityQueue<Group> heap)
+    {
+        ArrayList<Group> heapGroups = new ArrayList<Group>(heap);
+        heap.clear();
+        
+        Collections.sort(heapGroups, SUMMARY_ORDER);
+        
+        ArrayList<Group> groups = new ArrayList<Group>();
+        
+        for (Group heapGroup : heapGroups)
+        {
+            groups.addAll(heapGroup.containedGroups);
+            groups.add(heapGroup);
+        }
+        
+        return groups;
+    }
+    
+    
+    @Override
+    public void beginSummary(
+        String[] groupingColumnNames,
+        String valueColumnName)
+    {
+        heaps.clear();
+        
+        for (int i = 0; i < groupingColumnNames.length; i++)
+        {
+            heaps.add(new PriorityQueue<Group>(11, DROP_ORDER));
+        }
+        
+        numGroups = 0;
+        
+        sink.beginSummary(groupingColumnNames, valueColumnName);
+    }
+    
+    
+    @Override
+    public void group(String[] groupingColumnValues, double sum)
+    {
+        int level = groupingColumnValues.length;
+        
+        /* The groups contained by this group have all been received, and are
+         * in the next grouping column's heap  */
+        ArrayList<Group> containedGroups = 
+            (level < heaps.size()) ? 
+                drain(heaps.get(level)) : 
+                new ArrayList<Group>(0);
+        
+        // The total is always forwarded
+        if (level == 0)
+        {
+            for (Group containedGroup : containedGroups)
+            {
+                sink.group(
+                    containedGroup.groupingColumnValues, 
+                    containedGroup.sum);
+            }
+            
+            sink.group(groupingColumnValues, sum);
+            
+            return;
+        }
+        
+        if (sum < minSum)
+        {
+            return;
+        }
+        
+        PriorityQueue<Group> heap = heaps.get(level - 1);
+        
+        Group group = 
+            new Group(
+                groupingColumnValues.clone(), 
+                sum, 
+                numGroups++, 
+                containedGroups);
+        
+        if (heap.size() < maxGroupsPerContainingGroup)
+        {
+            heap.add(group);
+        }
+        
+        // Replace the group with the smallest sum, if this group's is larger
+        else if (sum > heap.peek().sum)
+        {
+            heap.poll();
+            heap.add(group);
+        }
+    }
+    
+    
+    @Override
+    public void endSummary()
+    {
+        sink.endSummary();
+    }
+}
@@ -0,0 +1,367 @@
+package core;
+
+
+/**
+ * Computes a ROLLUP summary one {@link Row} at a time, from {@link Row}s that
+ * arrive sorted by the grouping columns. <p>
+ * 
+ * {@link Row}s are buffered in blocks.  As each {@link Row} arrives, it is
+ * compared with the previous {@link Row} once, to find the first grouping
+ * column whose value changed (the group boundaries of every group size), and
+ * its value is added to a contiguous value column.  When a block fills, each
+ * group size's sums are computed over the whole block by a
+ * {@link SegmentedSums} (one segmented sum of the value column per group
+ * size), and the groups that ended in the block are sent to a
+ * {@link RollupSink}.  Memory use is proportional to the block size, not to
+ * the number of {@link Row}s. <p>
+ * 
+ * Each group size's sums add their values in row order, as when every
+ * {@link Row} is added to every group size's running sum, rather than being
+ * computed from the sums of smaller groups, which would add them in a
+ * different order. <p>
+ * 
+ * The {@link SegmentedSums} is {@link ScalarSegmentedSums}, unless the
+ * {@value #VECTOR_SEGMENTED_SUMS_PROPERTY} system property is "true", in
+ * which case it is core.VectorSegmentedSums, which uses the incubating
+ * Vector API (jdk.incubator.vector).  It is kept in its own source directory
+ * (src_vector), so that the rest of the project still builds on JDK 8. <p>
+ * 
+ * Only sends groups: calling {@link RollupSink#beginSummary} and
+ * {@link RollupSink#endSummary} is up to the caller.
+ * 
+ * @author Dylan Jacobs
+ */
+public class RollupAccumulator
+{
+    /**
+     * The default number of {@link Row}s per block
+     */
+    static final int DEFAULT_BLOCK_SIZE = 4096;
+    
+    /**
+     * The system property that selects the Vector API {@link SegmentedSums}
+     */
+    static final String VECTOR_SEGMENTED_SUMS_PROPERTY =
+        "core.vectorSegmentedSums";
+    
+    /**
+     * The name of the Vector API {@link SegmentedSums} class
+     */
+    private static final String VECTOR_SEGMENTED_SUMS_CLASS_NAME =
+        "core.VectorSegmentedSums";
+    
+    /**
+     * Computes each group size's sums over a block
+     */
+    private static final SegmentedSums SEGMENTED_SUMS = getSegmentedSums();
+    
+    /**
+     * The column indices to use for grouping, in grouping order
+     */
+    private final int[] groupingColumnIndices;
+    
+    /**
+     * The {@link RollupSink} to send groups to
+     */
+    private final RollupSink sink;
+    
+    /**
+     * The {@link Row}s of the current block
+     */
+    private final Row[] rows;
+    
+    /**
+     * The value column of the current block
+     */
+    private final double[] values;
+    
+    /**
+     * For each {@link Row} of the current block, the first (most significant,
+     * smallest) grouping column index whose grouping column's value changed
+     * with respect to the previous {@link Row}, or the number of grouping
+     * columns if none changed
+     */
+    private final int[] valueChangedIndices;
+    
+    /**
+     * For each group size, the sums of the groups that ended on the
+     * {@link Row} before each {@link Row} of the current block
+     */
+    private final double[][] endedSums;
+    
+    /**
+     * The number of {@link Row}s in the current block
+     */
+    private int numRows;
+    
+    /**
+     * The sums of the groups in progress, for each group size
+     */
+    private final double[] groupSums;
+    
+    /**
+     * The sum of the values of all {@link Row}s
+     */
+    private double total;
+    
+    /**
+     * The previous {@link Row}, or null if no {@link Row} has arrived
+     */
+    private Row previousRow;
+    
+    /**
+     * The last {@link Row} of the previous block, or null if no block has
+     * been summed
+     */
+    private Row previousBlockLastRow;
+    
+    
+    /**
+     * Create a new {@link RollupAccumulator} that buffers blocks of
+     * {@value #DEFAULT_BLOCK_SIZE} {@link Row}s
+     * 
+     * @param groupingColumnIndices {@link #groupingColumnIndices}
+     * @param sink {@link #sink}
+     * 
+     * @throws RuntimeException If groupingColumnIndices is empty
+     */
+    public RollupAccumulator(int[] groupingColumnIndices, RollupSink sink)
+    {
+        this(groupingColumnIndices, sink, DEFAULT_BLOCK_SIZE);
+    }
+    
+    
+    /**
+     * Create a new {@link RollupAccumulator} <p>
+     * 
+     * A group is sent once the block holding the first {@link Row} after it
+     * fills, so a block size of 1 sends each group as soon as that
+     * {@link Row} arrives.
+     * 
+     * @param groupingColumnIndices {@link #groupingColumnIndices}
+     * @param sink {@link #sink}
+     * 
+     * @param blockSize
+     * The number of {@link Row}s per block
+     * 
+     * @throws RuntimeException
+     * If groupingColumnIndices is empty, or blockSize is less than 1
+     */
+    public RollupAccumulator(
+        int[] groupingColumnIndices,
+        RollupSink sink,
+        int blockSize)
+    {
+        if (groupingColumnIndices.length == 0)
+        {
+            throw new RuntimeException(
+                "At least one grouping column index must be provided");
+        }
+        
+        if (blockSize < 1)
+        {
+            throw new RuntimeException("The block size must be at least 1");
+        }
+        
+        int numGroupingColumns = groupingColumnIndices.length;
+        
+        this.groupingColumnIndices = groupingColumnIndices;
+        this.sink = sink;
+        
+        rows = new Row[blockSize];
+        values = new double[blockSize];
+        valueChangedIndices = new int[blockSize];
+        endedSums = new double[numGroupingColumns][blockSize];
+        groupSums = new double[numGroupingColumns];
+    }
+    
+    
+    /**
+     * Get the {@link SegmentedSums} selected by the
+     * {@value #VECTOR_SEGMENTED_SUMS_PROPERTY} system property
+     * 
+     * @return The selected {@link SegmentedSums}
+     * 
+     * @throws RuntimeException
+     * If the Vector API {@link SegmentedSums} is selected, but is not
+     * available
+     */
+    private static SegmentedSums getSegmentedSums()
+    {
+        if (! Boolean.getBoolean(VECTOR_SEGMENTED_SUMS_PROPERTY))
+        {
+            return new ScalarSegmentedSums();
+        }
+        
+        try
+        {
+            return (SegmentedSums)
+                Class.forName(VECTOR_SEGMENTED_SUMS_CLASS_NAME)
+                    .getDeclaredConstructor()
+                    .newInstance();
+        }
+        
+        catch (ReflectiveOperationException | LinkageError e)
+        {
+            throw new RuntimeException(
+                VECTOR_SEGMENTED_SUMS_CLASS_NAME +
+                " is not available.  Build src_vector, and run with " +
+                "--add-modules jdk.incubator.vector",
+                e);
+        }
+    }
+    
+    
+    /**
+     * Add a {@link Row}, and send the groups that ended in the current block
+     * if the block is full <p>
+     * 
+     * PRECONDITION: row is not less than the previous {@link Row}, per the
+     * grouping columns
+     * 
+     * @param row The next {@link Row}
+     * 
+     * @throws RuntimeException If the above precondition is not met
+     */
+    public void add(Row row)
+    {
+        double currentRowValue = row.getValue();
+        
+        int numGroupingColumns = groupingColumnIndices.length;
+        
+        // The first row starts a group of every group size
+        int valueChangedIndex = 0;
+        
+        if (previousRow == null)
+        {
+            total = currentRowValue;
+        }
+        
+        else
+        {
+            total += currentRowValue;
+            
+            // Find the first grouping column whose value changed
+            while (valueChangedIndex < numGroupingColumns)
+            {
+                int columnIndex = groupingColumnIndices[valueChangedIndex];
+                
+                String previousColumnValue =
+                    previousRow.getDimensionalColumnValue(columnIndex);
+                
+                String currentColumnValue =
+                    row.getDimensionalColumnValue(columnIndex);
+                
+                if (! currentColumnValue.equals(previousColumnValue))
+                {
+                    // Only compare the values' order once they differ
+                    if (currentColumnValue.compareTo(previousColumnValue) < 0)
+                    {
+                        throw new RuntimeException(
+                            "Input data invalid: Rows are not sorted by the " +
+                            "grouping columns");
+                    }
+                    
+                    break;
+                }
+                
+                valueChangedIndex++;
+            }
+        }
+        
+        rows[numRows] = row;
+        values[numRows] = currentRowValue;
+        valueChangedIndices[numRows] = valueChangedIndex;
+        numRows++;
+        
+        previousRow = row;
+        
+        if (numRows == rows.length)
+        {
+            sumBlock();
+        }
+    }
+    
+    
+    /**
+     * Compute each group size's sums over the current block, send the groups
+     * that ended in the block, and start a new block
+     */
+    private void sumBlock()
+    {
+        int numGroupingColumns = groupingColumnIndices.length;
+        
+        // One segmented sum of the value column per group size
+        for (int i = 0; i < numGroupingColumns; i++)
+        {
+            groupSums[i] =
+                SEGMENTED_SUMS.sum(
+                    values,
+                    valueChangedIndices,
+                    numRows,
+                    i,
+                    groupSums[i],
+                    endedSums[i]);
+        }
+        
+        double[] rowEndedSums = new double[numGroupingColumns];
+        
+        Row lastRow = previousBlockLastRow;
+        
+        for (int row = 0; row < numRows; row++)
+        {
+            int valueChangedIndex = valueChangedIndices[row];
+            
+            // If groups ended on the previous row (the first row ends none)
+            if (valueChangedIndex < numGroupingColumns && lastRow != null)
+            {
+                for (int i = valueChangedIndex; i < numGroupingColumns; i++)
+                {
+                    rowEndedSums[i] = endedSums[i][row];
+                }
+                
+                // Send the group(s) that ended on the previous row
+                RollupSummarizer.sinkGroups(
+                    RollupSummarizer.getGroupingColumnValues(
+                        lastRow,
+                        groupingColumnIndices),
+                    valueChangedIndex,
+                    rowEndedSums,
+                    sink);
+            }
+            
+            lastRow = rows[row];
+            rows[row] = null;
+        }
+        
+        previousBlockLastRow = lastRow;
+        numRows = 0;
+    }
+    
+    
+    /**
+     * Send the groups that are in progress, followed by the total
+     */
+    public void finish()
+    {
+        if (numRows > 0)
+        {
+            sumBlock();
+        }
+        
+        if (previousRow != null)
+        {
+            // Send the group(s) that ended on the last row
+            RollupSummarizer.sinkGroups(
+                RollupSummarizer.getGroupingColumnValues(
+                    previousRow,
+                    groupingColumnIndices),
+                0,
+                groupSums,
+                sink);
+        }
+        
+        // Send the total
+        sink.group(new String[0], total);
+    }
+}
@@ -0,0 +1,79 @@
+package core;
+
+import java.util.Arrays;
+
+
+/**
+ * A group of a ROLLUP summary: the values of the grouping columns that define
+ * the group, and the sum of the values of the group's rows
+ * 
+ * @author Dylan Jacobs
+ */
+public final class RollupRecord
+{
+    /**
+     * The values of the grouping columns that define the group, in grouping
+     * order.  Has one value per grouping column for the smallest groups, one
+     * fewer value for each larger group, and no values for the total.
+     */
+    private final String[] groupingColumnValues;
+    
+    /**
+     * The sum of the values of the group's rows
+     */
+    private final double value;
+    
+    
+    /**
+     * Create a new {@link RollupRecord}
+     * 
+     * @param groupingColumnValues {@link #groupingColumnValues}
+     * @param value {@link #value}
+     */
+    public RollupRecord(String[] groupingColumnValues, double value)
+    {
+        this.groupingColumnValues = groupingColumnValues;
+        this.value = value;
+    }
+    
+    
+    /**
+     * @return
+     * The number of grouping column values that define the group (0 for the
+     * total)
+     */
+    public int getLevel()
+    {
+        return groupingColumnValues.length;
+    }
+    
+    
+    /**
+     * @param column
+     * The index of the grouping column, in grouping order
+     * 
+     * @return The group's value of the grouping column
+     * 
+     * @throws IndexOutOfBoundsException If column is not less than the level
+     */
+    public String getGroupingColumnValue(int column)
+    {
+        return groupingColumnValues[column];
+    }
+    
+    
+    /**
+     * @return {@link #value}
+     */
+    public double getValue()
+    {
+        return value;
+    }
+    
+    
+    @Override
+    public String toString()
+    {
+        return Arrays.toString(groupingColumnValues) + " " + value;
+    }
+}
@@ -0,0 +1,43 @@
+package core;
+
+
+/**
+ * Receives the groups of a ROLLUP summary, in ROLLUP summary order: grouping
+ * column values ascending, with each group following the groups it contains,
+ * and the total last.
+ * 
+ * @author Dylan Jacobs
+ */
+public interface RollupSink
+{
+    /**
+     * Called once, before any group
+     * 
+     * @param groupingColumnNames
+     * The names of the grouping columns, in grouping order
+     * 
+     * @param valueColumnName
+     * The name of the 'value' column
+     */
+    void beginSummary(String[] groupingColumnNames, String valueColumnName);
+    
+    
+    /**
+     * Called once per group, including once for the total
+     * 
+     * @param groupingColumnValues
+     * The values of the grouping columns that define the group, in grouping
+     * order.  Has one value per grouping column for the smallest groups, one
+     * fewer value for each larger group, and no values for the total.
+     * 
+     * @param sum
+     * The sum of the values of the group's rows
+     */
+    void group(String[] groupingColumnValues, double sum);
+    
+    
+    /**
+     * Called once, after the total
+     */
+    void endSummary();
+}
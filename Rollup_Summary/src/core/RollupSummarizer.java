@@ -15,6 +15,20 @@ import java.util.HashSet;
  */    
 public class RollupSummarizer
 {
+    /**
+     * The largest key space (the product of the grouping columns'
+     * cardinalities) for which the dense aggregation path is used
+     */
+    protected static final int MAX_DENSE_KEY_SPACE = 1 << 20;
+    
+    /**
+     * The largest key space, per input row, for which the dense aggregation
+     * path is used.  Keeps sparse key spaces (mostly empty cells) on the
+     * comparison sort path.
+     */
+    protected static final int MAX_DENSE_CELLS_PER_ROW = 16;
+    
+    
     /**
      * Get and validate the input data's column names from the column names 
      * header line <p>
@@ -184,6 +198,103 @@ public class RollupSummarizer
     }
     
     
+    /**
+     * Get the names of the grouping columns, in grouping order
+     * 
+     * @param columnNames
+     * A column schema
+     * 
+     * @param groupingColumnIndices
+     * The column indices to use for grouping, in grouping order
+     * 
+     * @return The names of the columns at groupingColumnIndices
+     */
+    protected static final String[] getGroupingColumnNames(
+        String[] columnNames,
+        int[] groupingColumnIndices)
+    {
+        String[] groupingColumnNames = new String[groupingColumnIndices.length];
+        
+        for (int i = 0; i < groupingColumnIndices.length; i++)
+        {
+            groupingColumnNames[i] = columnNames[groupingColumnIndices[i]];
+        }
+        
+        return groupingColumnNames;
+    }
+    
+    
+    /**
+     * Parse a raw line from input data into a {@link Row} <p>
+     * 
+     * PRECONDITIONS: <br>
+     * 1) line has expectedNumColumns elements, delimited by columnDelimiter
+     *    <br>
+     * 2) The last element in line can be parsed to {@link Double}
+     * 
+     * @param line
+     * The raw line from the input data
+     * 
+     * @param columnDelimiter
+     * The column delimiter character expected in the input data
+     * 
+     * @param expectedNumColumns
+     * The expected number of delimited elements in line
+     * 
+     * @param rowIdPrefix
+     * The text preceding rowId where the row is identified in error messages
+     * (e.g. "" for a row index, or "at byte offset ")
+     * 
+     * @param rowId
+     * The row's identifier in error messages
+     * 
+     * @return The parsed {@link Row}
+     * 
+     * @throws RuntimeException If any of the above preconditions are not met
+     */
+    protected static final Row getRow(
+        String line,
+        String columnDelimiter,
+        int expectedNumColumns,
+        String rowIdPrefix,
+        long rowId)
+    {
+        String[] values = line.split(columnDelimiter);
+        
+        if (values.length != expectedNumColumns)
+        {
+            throw new RuntimeException(
+                "Input data invalid: Row " +
+                rowIdPrefix +
+                rowId +
+                " does not contain " +
+                expectedNumColumns +
+                " columns");
+        }
+        
+        double value;
+        
+        try
+        {
+            value = Double.parseDouble(values[values.length - 1]);
+        }
+        
+        catch (NumberFormatException e)
+        {
+            throw new RuntimeException(
+                "Input data invalid: The value in the value column of row " +
+                rowIdPrefix +
+                rowId +
+                " cannot be parsed to a number (double)");
+        }
+        
+        String[] dimensionalColumnValues =
+            Arrays.copyOf(values, values.length - 1);
+        
+        return new Row(dimensionalColumnValues, value);
+    }
+    
+    
     /**
      * Given raw lines from input data, parse each line into a {@link Row}, and
      * return the {@link Row}s <p>
@@ -222,39 +333,13 @@ public class RollupSummarizer
         
         for (int i = 0; i < numInputDataLines; i++)
         {
-            String line = inputDataLines.get(i);
-            
-            String[] values = line.split(columnDelimiter);
-            
-            if (values.length != expectedNumColumns)
-            {
-                throw new RuntimeException(
-                    "Input data invalid: Row " +
-                    i +
-                    " does not contain " +
-                    expectedNumColumns +
-                    " columns");
-            }
-            
-            double value;
-            
-            try
-            {
-                value = Double.parseDouble(values[values.length - 1]);
-            }
-            
-            catch (NumberFormatException e)
-            {
-                throw new RuntimeException(
-                    "Input data invalid: The value in the value column of row " +
-                    i +
-                    " cannot be parsed to a number (double)");
-            }
-            
-            String[] dimensionalColumnValues =
-                Arrays.copyOf(values, values.length - 1);
-            
-            Row row = new Row(dimensionalColumnValues, value);
+            Row row =
+                getRow(
+                    inputDataLines.get(i),
+                    columnDelimiter,
+                    expectedNumColumns,
+                    "",
+                    i);
             
             rows.add(row);
         }
@@ -316,6 +401,223 @@ public class RollupSummarizer
     }
 
     
+    /**
+     * The table parsed from the input data, and the grouping column indices
+     */
+    private static final class InputTable
+    {
+        /**
+         * The column names
+         */
+        private final String[] columnNames;
+        
+        /**
+         * The name of the 'value' column
+         */
+        private final String valueColumnName;
+        
+        /**
+         * The column indices to use for grouping, in grouping order
+         */
+        private final int[] groupingColumnIndices;
+        
+        /**
+         * The table's {@link Row}s, in input order
+         */
+        private final Row[] rows;
+        
+        
+        /**
+         * Parse the input data into a table and validate the table.  Validate
+         * the provided grouping column names.
+         * 
+         * @param inputDataLines
+         * The raw lines from the input data (contains a minimum of two lines)
+         * 
+         * @param columnDelimiter
+         * The column delimiter character expected in the input data
+         * 
+         * @param groupingColumnNames
+         * The names of the grouping columns, in grouping order
+         */
+        private InputTable(
+            ArrayList<String> inputDataLines,
+            String columnDelimiter,
+            String[] groupingColumnNames)
+        {
+            String columnNamesLine = inputDataLines.remove(0);
+            columnNames = getAndValidateColumnNames(columnNamesLine);
+            valueColumnName = columnNames[columnNames.length - 1];
+            
+            validateGroupingColumnNames(groupingColumnNames, valueColumnName);
+            
+            groupingColumnIndices =
+                getGroupingColumnIndices(columnNames, groupingColumnNames);
+            
+            rows = getRows(inputDataLines, columnDelimiter, columnNames.length);
+        }
+    }
+    
+    
+    /**
+     * A {@link RollupSink} that formats the groups of a ROLLUP summary as text
+     * via {@link #summarizeGroups}, for the methods that return a ROLLUP
+     * summary as text
+     */
+    private final class SummarizeGroupsSink implements RollupSink
+    {
+        /**
+         * The column indices to use for grouping, in grouping order
+         */
+        private final int[] groupingColumnIndices;
+        
+        /**
+         * The number of dimensional columns of the {@link Row}s passed to
+         * {@link #summarizeGroups}
+         */
+        private final int numDimensionalColumns;
+        
+        /**
+         * The ROLLUP summary text
+         */
+        private final StringBuilder stringBuilder = new StringBuilder(1000);
+        
+        /**
+         * The grouping column values of the smallest group that ended, or null
+         * if no groups are waiting to be summarized
+         */
+        private String[] groupingColumnValues;
+        
+        /**
+         * The first (most significant, smallest) grouping column index of the
+         * groups that ended
+         */
+        private int valueChangedIndex;
+        
+        /**
+         * The sum of each group that ended, for each group size
+         */
+        private final double[] groupSums;
+        
+        
+        /**
+         * Create a new {@link SummarizeGroupsSink}
+         * 
+         * @param groupingColumnIndices {@link #groupingColumnIndices}
+         */
+        private SummarizeGroupsSink(int[] groupingColumnIndices)
+        {
+            this.groupingColumnIndices = groupingColumnIndices;
+            
+            int numDimensionalColumns = 0;
+            
+            for (int columnIndex : groupingColumnIndices)
+            {
+                numDimensionalColumns =
+                    Math.max(numDimensionalColumns, columnIndex + 1);
+            }
+            
+            this.numDimensionalColumns = numDimensionalColumns;
+            
+            groupSums = new double[groupingColumnIndices.length];
+        }
+        
+        
+        /**
+         * Summarize the groups that ended together, if any
+         */
+        private void summarizeEndedGroups()
+        {
+            if (groupingColumnValues == null)
+            {
+                return;
+            }
+            
+            // A row holding the grouping column values
+            
+            String[] dimensionalColumnValues =
+                new String[numDimensionalColumns];
+            
+            for (int i = 0; i < groupingColumnIndices.length; i++)
+            {
+                dimensionalColumnValues[groupingColumnIndices[i]] =
+                    groupingColumnValues[i];
+            }
+            
+            Row row = new Row(dimensionalColumnValues, 0);
+            
+            stringBuilder.append(
+                summarizeGroups(
+                    row,
+                    groupingColumnIndices,
+                    valueChangedIndex,
+                    groupSums));
+            
+            groupingColumnValues = null;
+        }
+        
+        
+        @Override
+        public void beginSummary(
+            String[] groupingColumnNames,
+            String valueColumnName)
+        {}
+        
+        
+        /**
+         * Groups that end together arrive from smallest to largest, so a
+         * smallest group starts the next groups that end together
+         */
+        @Override
+        public void group(String[] groupingColumnValues, double sum)
+        {
+            int numGroupingColumns = groupingColumnIndices.length;
+            int level = groupingColumnValues.length;
+            
+            if (level == numGroupingColumns || level == 0)
+            {
+                summarizeEndedGroups();
+            }
+            
+            // Construct and append the total value line
+            if (level == 0)
+            {
+                for (int i = 0; i < numGroupingColumns; i++)
+                {
+                    stringBuilder.append('\t');
+                }
+                
+                appendNumber(stringBuilder, sum);
+                
+                return;
+            }
+            
+            if (level == numGroupingColumns)
+            {
+                this.groupingColumnValues = groupingColumnValues;
+            }
+            
+            valueChangedIndex = level - 1;
+            groupSums[valueChangedIndex] = sum;
+        }
+        
+        
+        @Override
+        public void endSummary()
+        {}
+        
+        
+        /**
+         * @return The ROLLUP summary text
+         */
+        @Override
+        public String toString()
+        {
+            return stringBuilder.toString();
+        }
+    }
+    
+    
     /**
      * Create a new {@link RollupSummarizer}
      */
@@ -340,26 +642,77 @@ public class RollupSummarizer
         String[] groupingColumnNames, 
         String valueColumnName)
     {
-        int numGroupingColumns = groupingColumnNames.length;
+        return TextRollupSink.formatColumnHeader(
+            groupingColumnNames,
+            valueColumnName);
+    }
+    
+    
+    /**
+     * Get the grouping column values of a {@link Row}, in grouping order
+     * 
+     * @param row
+     * The {@link Row} to get the grouping column values of
+     * 
+     * @param groupingColumnIndices
+     * The column indices to use for grouping, in grouping order
+     * 
+     * @return row's grouping column values, in grouping order
+     */
+    static final String[] getGroupingColumnValues(
+        Row row,
+        int[] groupingColumnIndices)
+    {
+        int numGroupingColumns = groupingColumnIndices.length;
         
-        StringBuilder stringBuilder = 
-            new StringBuilder((numGroupingColumns + 1) * 20);
+        String[] groupingColumnValues = new String[numGroupingColumns];
         
         for (int i = 0; i < numGroupingColumns; i++)
         {
-            stringBuilder.append(groupingColumnNames[i]);
-            stringBuilder.append(" ");
+            groupingColumnValues[i] =
+                row.getDimensionalColumnValue(groupingColumnIndices[i]);
         }
         
-        stringBuilder.append(valueColumnName);
-        
-        return stringBuilder.toString();
+        return groupingColumnValues;
     }
     
     
     /**
-     * Compute and return a ROLLUP summary of the provided, sorted {@link Row}s
-     * given the provided grouping column indices <p>
+     * Given the grouping column values of the groups that just ended, send the
+     * groups that ended to a {@link RollupSink}, from smallest to largest
+     * 
+     * @param groupingColumnValues
+     * The grouping column values of the smallest group that just ended, in
+     * grouping order
+     * 
+     * @param valueChangedIndex
+     * The first (most significant, smallest) grouping column index whose
+     * grouping column's value changed
+     * 
+     * @param groupSums
+     * The sum of values accumulated for each group size
+     * 
+     * @param sink
+     * The {@link RollupSink} to send the groups to
+     */
+    static final void sinkGroups(
+        String[] groupingColumnValues,
+        int valueChangedIndex,
+        double[] groupSums,
+        RollupSink sink)
+    {
+        for (int i = groupSums.length - 1; i >= valueChangedIndex; i--)
+        {
+            sink.group(Arrays.copyOf(groupingColumnValues, i + 1), groupSums[i]);
+        }
+    }
+    
+    
+    /**
+     * Compute a ROLLUP summary of the provided, sorted {@link Row}s given the
+     * provided grouping column indices, and send its groups to a
+     * {@link RollupSink}, by feeding the {@link Row}s to a
+     * {@link RollupAccumulator} <p>
      * 
      * PRECONDITIONS: <br>
      * 1) rowsSorted is not empty <br>
@@ -373,118 +726,340 @@ public class RollupSummarizer
      * @param groupingColumnIndices
      * The column indices to use for grouping, in grouping order
      * 
+     * @param sink
+     * The {@link RollupSink} to send the ROLLUP summary's groups to
+     * 
+     * @throws RuntimeException If any of the above preconditions are not met
+     */
+    protected void getRollupSummary(
+        Row[] rowsSorted,
+        int[] groupingColumnIndices,
+        RollupSink sink)
+    {
+        RollupAccumulator rollupAccumulator =
+            new RollupAccumulator(groupingColumnIndices, sink);
+        
+        for (Row row : rowsSorted)
+        {
+            rollupAccumulator.add(row);
+        }
+        
+        rollupAccumulator.finish();
+    }
+    
+    
+    /**
+     * Compute and return a ROLLUP summary of the provided, sorted {@link Row}s
+     * given the provided grouping column indices <p>
+     * 
+     * PRECONDITIONS: <br>
+     * 1) rowsSorted is not empty <br>
+     * 2) groupingColumnIndices are valid with respect to the {@link Row} schema
+     * 
+     * @param rowsSorted
+     * A list of {@link Row}s, sorted per groupingColumnIndices
+     * 
+     * @param groupingColumnIndices
+     * The column indices to use for grouping, in grouping order
+     * 
      * @return A ROLLUP summary of rowsSorted given groupingColumnIndices
      * 
      * @throws RuntimeException If any of the above preconditions are not met
+     * 
+     * @deprecated
+     * No longer called by {@link #summarize(ArrayList, String, String[])}.
+     * Override {@link #getRollupSummary(Row[], int[], RollupSink)} or
+     * {@link #summarizeGroups} instead.
      */
+    @Deprecated
     protected String getRollupSummary(
         Row[] rowsSorted,
         int[] groupingColumnIndices)
-    {      
-        Row previousRow = rowsSorted[0];
+    {
+        SummarizeGroupsSink sink =
+            new SummarizeGroupsSink(groupingColumnIndices);
+        
+        getRollupSummary(rowsSorted, groupingColumnIndices, sink);
         
+        return sink.toString();
+    }
+    
+    
+    /**
+     * Compute a ROLLUP summary of the provided, unsorted {@link Row}s given
+     * the provided grouping column indices, without sorting the {@link Row}s,
+     * and send its groups to a {@link RollupSink} <p>
+     * 
+     * Each grouping column value is mapped to its rank among the grouping
+     * column's distinct values, and each row's value is added, in row order,
+     * to a dense array per group size indexed by the combined ranks, and to
+     * the total.  Each group's sum therefore adds the group's rows in the
+     * order they were provided.  The smallest groups' sums match
+     * {@link #getRollupSummary}'s, since sorting keeps the order of rows with
+     * equal grouping column values, but larger groups' sums and the total
+     * add their rows in a different order than after sorting, so fractional
+     * sums can differ in their last digits. <p>
+     * 
+     * Only suited to low cardinality grouping columns.  Sends nothing and
+     * returns false if the key space (the product of the grouping columns'
+     * cardinalities) exceeds {@link #MAX_DENSE_KEY_SPACE}, or
+     * {@link #MAX_DENSE_CELLS_PER_ROW} per row, in which case
+     * {@link #getRollupSummary} should be used instead. <p>
+     * 
+     * PRECONDITIONS: <br>
+     * 1) rows is not empty <br>
+     * 2) groupingColumnIndices are valid with respect to the {@link Row} schema <p>
+     * 
+     * Override to customize
+     * 
+     * @param rows
+     * A list of {@link Row}s, in any order
+     * 
+     * @param groupingColumnIndices
+     * The column indices to use for grouping, in grouping order
+     * 
+     * @param sink
+     * The {@link RollupSink} to send the ROLLUP summary's groups to
+     * 
+     * @return
+     * True if the ROLLUP summary was computed, or false if the key space is
+     * too large
+     * 
+     * @throws RuntimeException If any of the above preconditions are not met
+     */
+    protected boolean getDenseRollupSummary(
+        Row[] rows,
+        int[] groupingColumnIndices,
+        RollupSink sink)
+    {
+        int numRows = rows.length;
         int numGroupingColumns = groupingColumnIndices.length;
         
-        double[] groupSums = new double[numGroupingColumns];
-        Arrays.fill(groupSums, previousRow.getValue());
+        long maxKeySpace =
+            Math.min(
+                MAX_DENSE_KEY_SPACE,
+                (long) numRows * MAX_DENSE_CELLS_PER_ROW);
+        
+        /* The cell (smallest group) of each row, accumulated from the ranks of
+         * its grouping column values one grouping column at a time  */
+        int[] rowCells = new int[numRows];
+        
+        // The id of each row's value in the current grouping column
+        int[] rowValueIds = new int[numRows];
         
-        double total = previousRow.getValue();
+        String[][] groupingColumnValues = new String[numGroupingColumns][];
         
-        StringBuilder stringBuilder = new StringBuilder(1000);
+        long keySpace = 1;
         
-        // For each sorted row, not including the first
-        for (int rowIndex = 1; rowIndex < rowsSorted.length; rowIndex++)
+        for (int i = 0; i < numGroupingColumns; i++)
         {
-            Row currentRow = rowsSorted[rowIndex];
-            double currentRowValue = currentRow.getValue();
+            int columnIndex = groupingColumnIndices[i];
+            
+            /* Map each distinct value to an id, in order of first appearance,
+             * so that each row's value is only hashed once  */
             
-            total += currentRowValue;
+            HashMap<String, Integer> valueIds = new HashMap<String, Integer>();
+            ArrayList<String> values = new ArrayList<String>();
             
-            // For each grouping column
-            for (int groupingColumnIndex = 0; 
-                 groupingColumnIndex < numGroupingColumns; 
-                 groupingColumnIndex++)
+            for (int rowIndex = 0; rowIndex < numRows; rowIndex++)
             {
-                int columnIndex = groupingColumnIndices[groupingColumnIndex];
-                
-                String previousColumnValue = 
-                    previousRow.getDimensionalColumnValue(columnIndex);
+                String columnValue =
+                    rows[rowIndex].getDimensionalColumnValue(columnIndex);
                 
-                String currentColumnValue = 
-                    currentRow.getDimensionalColumnValue(columnIndex);
+                Integer valueId = valueIds.get(columnValue);
                 
-                /* If grouping column values up to and including the current
-                 * grouping column have not changed from the previous row  */
-                if (currentColumnValue.equals(previousColumnValue))
+                if (valueId == null)
                 {
-                    // Increment the sum for this group
-                    groupSums[groupingColumnIndex] = 
-                        groupSums[groupingColumnIndex] + currentRowValue;
-                }
-                
-                /* If the value of the current grouping column has changed from 
-                 * the previous row  */
-                else
-                {
-                    // Summarize the group(s) that ended on the previous row
-                    String groupSummary =
-                        summarizeGroups(
-                            previousRow,
-                            groupingColumnIndices, 
-                            groupingColumnIndex, 
-                            groupSums);
-                    
-                    stringBuilder.append(groupSummary);
-                    
-                    /* Reset the sum for the current grouping column and all
-                     * subsequent grouping columns, and add the value of the
-                     * current row  */
-                    for (int i = groupingColumnIndex; 
-                         i < numGroupingColumns; 
-                         i++)
+                    if (keySpace * (values.size() + 1) > maxKeySpace)
                     {
-                        groupSums[i] = currentRowValue;
+                        return false;
                     }
                     
-                    break;
+                    valueId = values.size();
+                    valueIds.put(columnValue, valueId);
+                    values.add(columnValue);
                 }
+                
+                rowValueIds[rowIndex] = valueId;
+            }
+            
+            // Rank the distinct values in ascending order
+            
+            String[] sortedValues = values.toArray(new String[values.size()]);
+            Arrays.sort(sortedValues);
+            
+            int[] valueIdRanks = new int[sortedValues.length];
+            
+            for (int rank = 0; rank < sortedValues.length; rank++)
+            {
+                valueIdRanks[valueIds.get(sortedValues[rank])] = rank;
             }
             
-            previousRow = currentRow;
+            for (int rowIndex = 0; rowIndex < numRows; rowIndex++)
+            {
+                rowCells[rowIndex] =
+                    rowCells[rowIndex] * sortedValues.length +
+                    valueIdRanks[rowValueIds[rowIndex]];
+            }
+            
+            groupingColumnValues[i] = sortedValues;
+            keySpace *= sortedValues.length;
         }
         
-        // Summarize the group(s) that ended on the last row
-        String groupSummary =
-            summarizeGroups(
-                previousRow,
-                groupingColumnIndices, 
-                0, 
-                groupSums);
+        /* The number of cells (smallest groups) covered by one group of each
+         * grouping column  */
+        int[] groupCellCounts = new int[numGroupingColumns];
+        groupCellCounts[numGroupingColumns - 1] = 1;
+        
+        for (int i = numGroupingColumns - 2; i >= 0; i--)
+        {
+            groupCellCounts[i] =
+                groupCellCounts[i + 1] * groupingColumnValues[i + 1].length;
+        }
         
-        stringBuilder.append(groupSummary);
+        /* Add each row's value to each of its groups' sums, and to the total,
+         * in row order  */
         
-        // Construct and append the total value line
+        double[][] levelSums = new double[numGroupingColumns][];
         
         for (int i = 0; i < numGroupingColumns; i++)
         {
-            stringBuilder.append('\t');
+            levelSums[i] = new double[(int) (keySpace / groupCellCounts[i])];
         }
         
-        appendNumber(stringBuilder, total);
+        boolean[] cellOccupied = new boolean[(int) keySpace];
+        double total = 0;
         
-        return stringBuilder.toString();
+        for (int rowIndex = 0; rowIndex < numRows; rowIndex++)
+        {
+            int cell = rowCells[rowIndex];
+            double value = rows[rowIndex].getValue();
+            
+            for (int i = 0; i < numGroupingColumns; i++)
+            {
+                levelSums[i][cell / groupCellCounts[i]] += value;
+            }
+            
+            cellOccupied[cell] = true;
+            total += value;
+        }
+        
+        int previousCell = -1;
+        
+        // For each occupied cell, in ascending order
+        for (int cell = 0; cell < keySpace; cell++)
+        {
+            if (! cellOccupied[cell])
+            {
+                continue;
+            }
+            
+            if (previousCell >= 0)
+            {
+                // Find the first grouping column whose rank changed
+                
+                int valueChangedIndex = 0;
+                
+                while (cell / groupCellCounts[valueChangedIndex] ==
+                       previousCell / groupCellCounts[valueChangedIndex])
+                {
+                    valueChangedIndex++;
+                }
+                
+                // Send the group(s) that ended on the previous cell
+                sinkDenseGroups(
+                    previousCell,
+                    valueChangedIndex,
+                    groupingColumnValues,
+                    groupCellCounts,
+                    levelSums,
+                    sink);
+            }
+            
+            previousCell = cell;
+        }
+        
+        // Send the group(s) that ended on the last occupied cell
+        sinkDenseGroups(
+            previousCell,
+            0,
+            groupingColumnValues,
+            groupCellCounts,
+            levelSums,
+            sink);
+        
+        // Send the total
+        sink.group(new String[0], total);
+        
+        return true;
+    }
+    
+    
+    /**
+     * Send the groups that ended on a cell of the dense array built by
+     * {@link #getDenseRollupSummary} to a {@link RollupSink}
+     * 
+     * @param cell
+     * The index of an occupied cell, after which at least one grouping
+     * column's rank changed
+     * 
+     * @param valueChangedIndex
+     * The first (most significant, smallest) grouping column index whose
+     * grouping column's rank changed
+     * 
+     * @param groupingColumnValues
+     * Each grouping column's distinct values, in ascending (rank) order
+     * 
+     * @param groupCellCounts
+     * The number of cells covered by one group of each grouping column
+     * 
+     * @param levelSums
+     * The sum of values of every group, for each group size
+     * 
+     * @param sink
+     * The {@link RollupSink} to send the groups to
+     */
+    private static void sinkDenseGroups(
+        int cell,
+        int valueChangedIndex,
+        String[][] groupingColumnValues,
+        int[] groupCellCounts,
+        double[][] levelSums,
+        RollupSink sink)
+    {
+        int numGroupingColumns = groupingColumnValues.length;
+        
+        // The cell's grouping column values, and the sums of its groups
+        
+        String[] cellGroupingColumnValues = new String[numGroupingColumns];
+        double[] groupSums = new double[numGroupingColumns];
+        
+        for (int i = 0; i < numGroupingColumns; i++)
+        {
+            int group = cell / groupCellCounts[i];
+            String[] values = groupingColumnValues[i];
+            
+            cellGroupingColumnValues[i] = values[group % values.length];
+            groupSums[i] = levelSums[i][group];
+        }
+        
+        sinkGroups(cellGroupingColumnValues, valueChangedIndex, groupSums, sink);
     }
     
     
     /**
      * Given a row where at least one grouping column value changed, compute
-     * and return a summary of the groups that ended on this row <p>
+     * and return a summary of the groups that ended on this row.  Called by
+     * {@link #summarize(ArrayList, String, String[])} for every path that
+     * {@link #rollup} takes. <p>
      * 
      * Override to customize
      * 
      * @param row
      * A {@link Row} where at least one grouping column value changed (with
-     * respect to the previous row)
+     * respect to the previous row).  It holds only the grouping column
+     * values: its other dimensional column values are null, and its value is
+     * 0.
      * 
      * @param groupingColumnIndices
      * The column indices to use for grouping, in grouping order
@@ -507,36 +1082,21 @@ public class RollupSummarizer
     {
         int numGroupingColumns = groupingColumnIndices.length;
         
-        // row's grouping column values, in grouping order
-        String[] groupingColumnValues = new String[numGroupingColumns];
-        
-        for (int i = 0; i < numGroupingColumns; i++)
-        {
-            groupingColumnValues[i] =
-                row.getDimensionalColumnValue(groupingColumnIndices[i]);
-        }
+        String[] groupingColumnValues =
+            getGroupingColumnValues(row, groupingColumnIndices);
         
         StringBuilder stringBuilder = new StringBuilder();
         
         // For each group that just ended (from largest to smallest)
         for (int i = numGroupingColumns - 1; i >= valueChangedIndex; i--)
         {
-            for (int j = 0; j <= i; j++)
-            {
-                stringBuilder.append(groupingColumnValues[j]);
-                stringBuilder.append('\t');
-            }
+            TextRollupSink.appendGroupLine(
+                stringBuilder,
+                groupingColumnValues,
+                i + 1,
+                numGroupingColumns,
+                groupSums[i]);
             
-            // Add tab characters for aggregated grouping columns
-            for (int j = i + 1; 
-                 j < numGroupingColumns; 
-                 j++)
-            {
-                stringBuilder.append('\t');
-            }
-            
-            // Add the group sum (aggregated value)
-            appendNumber(stringBuilder, groupSums[i]);
             stringBuilder.append(System.lineSeparator());
         }
         
@@ -544,10 +1104,94 @@ public class RollupSummarizer
     }    
     
     
+    /**
+     * Compute a ROLLUP summary of the provided, unsorted {@link Row}s given
+     * the provided grouping column indices, and send its groups to a
+     * {@link RollupSink}.  Uses {@link #getDenseRollupSummary} if possible,
+     * otherwise sorts the {@link Row}s and uses {@link #getRollupSummary}. <p>
+     * 
+     * PRECONDITIONS: <br>
+     * 1) rows is not empty <br>
+     * 2) groupingColumnIndices are valid with respect to the {@link Row} schema <p>
+     * 
+     * Override to customize
+     * 
+     * @param rows
+     * A list of {@link Row}s, in any order
+     * 
+     * @param groupingColumnIndices
+     * The column indices to use for grouping, in grouping order
+     * 
+     * @param sink
+     * The {@link RollupSink} to send the ROLLUP summary's groups to
+     * 
+     * @throws RuntimeException If any of the above preconditions are not met
+     */
+    protected void rollup(
+        Row[] rows,
+        int[] groupingColumnIndices,
+        RollupSink sink)
+    {
+        // Skip sorting if the grouping columns have low cardinality
+        if (! getDenseRollupSummary(rows, groupingColumnIndices, sink))
+        {
+            Row[] rowsSorted = sortRows(rows, groupingColumnIndices);
+            
+            getRollupSummary(rowsSorted, groupingColumnIndices, sink);
+        }
+    }
+    
+    
     /**
      * Parse the input data into a table and validate the table.  Validate the
      * provided grouping column names.  Given the provided grouping columns, 
-     * compute and return a ROLLUP summary view of the table. <p>
+     * compute a ROLLUP summary view of the table and send it to a
+     * {@link RollupSink}. <p>
+     * 
+     * The sink receives the names of the grouping columns used, which are all
+     * dimensional columns (in the order that they appear) if no grouping
+     * column names are provided. <p>
+     * 
+     * Override to customize
+     * 
+     * @param inputDataLines
+     * The raw lines from the input data (contains a minimum of two lines)
+     * 
+     * @param columnDelimiter
+     * The column delimiter character expected in the input data
+     * 
+     * @param groupingColumnNames
+     * The names of the grouping columns, in grouping order
+     * 
+     * @param sink
+     * The {@link RollupSink} to send the ROLLUP summary view to
+     */
+    public void summarize(
+        ArrayList<String> inputDataLines,
+        String columnDelimiter,
+        String[] groupingColumnNames,
+        RollupSink sink)
+    {
+        InputTable inputTable =
+            new InputTable(inputDataLines, columnDelimiter, groupingColumnNames);
+        
+        sink.beginSummary(
+            getGroupingColumnNames(
+                inputTable.columnNames,
+                inputTable.groupingColumnIndices), 
+            inputTable.valueColumnName);
+        
+        rollup(inputTable.rows, inputTable.groupingColumnIndices, sink);
+        
+        sink.endSummary();
+    }
+    
+    
+    /**
+     * Parse the input data into a table and validate the table.  Validate the
+     * provided grouping column names.  Given the provided grouping columns, 
+     * compute and return a ROLLUP summary view of the table.  The groups are
+     * computed by {@link #rollup} and formatted by {@link #summarizeGroups}. <p>
      * 
      * Override to customize
      * 
@@ -567,23 +1211,20 @@ public class RollupSummarizer
         String columnDelimiter,
         String[] groupingColumnNames)
     {
-        String columnNamesLine = inputDataLines.remove(0);
-        String[] columnNames = getAndValidateColumnNames(columnNamesLine);
-        String valueColumnName = columnNames[columnNames.length - 1];
+        InputTable inputTable =
+            new InputTable(inputDataLines, columnDelimiter, groupingColumnNames);
         
-        validateGroupingColumnNames(groupingColumnNames, valueColumnName);        
+        String columnHeader =
+            getRollupSummaryColumnHeader(
+                groupingColumnNames,
+                inputTable.valueColumnName);
         
-        int[] groupingColumnIndices = 
-            getGroupingColumnIndices(columnNames, groupingColumnNames);
+        SummarizeGroupsSink sink =
+            new SummarizeGroupsSink(inputTable.groupingColumnIndices);
         
-        Row[] rows = getRows(inputDataLines, columnDelimiter, columnNames.length);
-        Row[] rowsSorted = sortRows(rows, groupingColumnIndices);
-
-        String columnHeader = 
-            getRollupSummaryColumnHeader(groupingColumnNames, valueColumnName);
+        rollup(inputTable.rows, inputTable.groupingColumnIndices, sink);
         
-        String rollupSummary =
-            getRollupSummary(rowsSorted, groupingColumnIndices);
+        String rollupSummary = sink.toString();
         
         return (columnHeader + System.lineSeparator() + rollupSummary);
     }
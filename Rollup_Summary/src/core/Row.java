@@ -57,6 +57,20 @@ public class Row
     }
     
     
+    /**
+     * @param value
+     * The numerical value of the new {@link Row}
+     * 
+     * @return
+     * A new {@link Row} with this {@link Row}'s dimensional column values and
+     * the provided numerical value
+     */
+    public Row withValue(double value)
+    {
+        return new Row(dimensionalColumnValues, value);
+    }
+    
+    
     @Override
     public String toString()
     {
@@ -0,0 +1,592 @@
+package core;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Computes an approximate ROLLUP summary of an input data file from a random
+ * sample of its rows, with a 95% confidence interval for each group sum. <p>
+ * 
+ * Rows are sampled (with replacement) by choosing uniformly random byte
+ * offsets in the file and reading the row that contains each offset, so only
+ * the sampled rows are parsed.  A row is therefore sampled with probability
+ * proportional to its length in bytes, which the estimates correct for: each
+ * sampled row stands for (data length in bytes / row length in bytes) rows
+ * (the Hansen-Hurwitz estimator).  Groups that have no sampled rows are
+ * missing from the summary. <p>
+ * 
+ * Unlike when the input data is read into lines for {@link RollupSummarizer},
+ * the input data does not end at the first empty line: finding it would mean
+ * reading the whole file.  The input data runs to the end of the file, less
+ * any trailing empty lines, and sampling an empty line before that is an
+ * error.
+ * 
+ * @author Dylan Jacobs
+ */
+public class SampledRollupSummarizer
+{
+    /**
+     * The number of standard errors in the half-width of a 95% confidence
+     * interval
+     */
+    private static final double Z_95 = 1.959963984540054;
+    
+    /**
+     * The number of bytes read at a time while searching for line boundaries
+     */
+    private static final int SEARCH_BLOCK_SIZE = 4096;
+    
+    /**
+     * The number of rows to sample
+     */
+    private final int sampleSize;
+    
+    /**
+     * The source of random byte offsets
+     */
+    private final Random random;
+    
+    /**
+     * Computes the ROLLUP summaries of the sampled rows
+     */
+    private final RollupSummarizer rollupSummarizer = new RollupSummarizer();
+    
+    
+    /**
+     * Collects the groups of a ROLLUP summary, in order
+     */
+    private static final class GroupCollector implements RollupSink
+    {
+        /**
+         * Each group's grouping column values
+         */
+        private final ArrayList<String[]> groupingColumnValues =
+            new ArrayList<String[]>();
+        
+        /**
+         * Each group's sum
+         */
+        private double[] sums = new double[1000];
+        
+        
+        @Override
+        public void beginSummary(
+            String[] groupingColumnNames,
+            String valueColumnName)
+        {}
+        
+        
+        @Override
+        public void group(String[] groupingColumnValues, double sum)
+        {
+            int numGroups = this.groupingColumnValues.size();
+            
+            if (numGroups == sums.length)
+            {
+                sums = Arrays.copyOf(sums, numGroups * 2);
+            }
+            
+            this.groupingColumnValues.add(groupingColumnValues);
+            sums[numGroups] = sum;
+        }
+        
+        
+        @Override
+        public void endSummary()
+        {}
+    }
+    
+    
+    /**
+     * A {@link TextRollupSink} that adds a column with the half-width of each
+     * group sum's 95% confidence interval
+     */
+    private static final class IntervalTextRollupSink extends TextRollupSink
+    {
+        /**
+         * The half-width of the confidence interval of the group being added
+         */
+        private double halfWidth;
+        
+        
+        /**
+         * Create a new {@link IntervalTextRollupSink}
+         * 
+         * @param headerGroupingColumnNames
+         * The grouping column names to put in the column header line, as
+         * given to {@link SampledRollupSummarizer#summarize}
+         */
+        private IntervalTextRollupSink(String[] headerGroupingColumnNames)
+        {
+            super(headerGroupingColumnNames);
+        }
+        
+        
+        /**
+         * Add a group, with the half-width of its sum's confidence interval
+         * 
+         * @param groupingColumnValues
+         * The values of the grouping columns that define the group
+         * 
+         * @param sum
+         * The group's estimated sum
+         * 
+         * @param halfWidth
+         * The half-width of the sum's confidence interval
+         */
+        private void group(
+            String[] groupingColumnValues,
+            double sum,
+            double halfWidth)
+        {
+            this.halfWidth = halfWidth;
+            
+            group(groupingColumnValues, sum);
+        }
+        
+        
+        @Override
+        protected String getRollupSummaryColumnHeader(
+            String[] groupingColumnNames,
+            String valueColumnName)
+        {
+            return super.getRollupSummaryColumnHeader(
+                       groupingColumnNames,
+                       valueColumnName) +
+                   " " +
+                   valueColumnName +
+                   "_ci95";
+        }
+        
+        
+        @Override
+        protected void appendGroup(
+            StringBuilder stringBuilder,
+            String[] groupingColumnValues,
+            double sum)
+        {
+            super.appendGroup(stringBuilder, groupingColumnValues, sum);
+            
+            stringBuilder.append('\t');
+            RollupSummarizer.appendNumber(stringBuilder, halfWidth);
+        }
+    }
+    
+    
+    /**
+     * Create a new {@link SampledRollupSummarizer}
+     * 
+     * @param sampleSize {@link #sampleSize}
+     * @param random {@link #random}
+     * 
+     * @throws RuntimeException If sampleSize is less than 2
+     */
+    public SampledRollupSummarizer(int sampleSize, Random random)
+    {
+        if (sampleSize < 2)
+        {
+            throw new RuntimeException(
+                "The sample size must be at least 2");
+        }
+        
+        this.sampleSize = sampleSize;
+        this.random = random;
+    }
+    
+    
+    /**
+     * Find the start of the line that contains a byte offset
+     * 
+     * @param file
+     * The file to search
+     * 
+     * @param offset
+     * A byte offset in the file
+     * 
+     * @param minOffset
+     * The offset to stop searching at
+     * 
+     * @param buffer
+     * A buffer of at least {@value #SEARCH_BLOCK_SIZE} bytes
+     * 
+     * @return
+     * The offset following the last newline before offset, or minOffset if
+     * there is no newline between minOffset and offset
+     * 
+     * @throws IOException If an error occurred while reading
+     */
+    private static long findLineStart(
+        RandomAccessFile file,
+        long offset,
+        long minOffset,
+        byte[] buffer)
+        throws IOException
+    {
+        long blockEnd = offset;
+        
+        while (blockEnd > minOffset)
+        {
+            long blockStart = Math.max(minOffset, blockEnd - SEARCH_BLOCK_SIZE);
+            int blockLength = (int) (blockEnd - blockStart);
+            
+            file.seek(blockStart);
+            file.readFully(buffer, 0, blockLength);
+            
+            for (int i = blockLength - 1; i >= 0; i--)
+            {
+                if (buffer[i] == '\n')
+                {
+                    return blockStart + i + 1;
+                }
+            }
+            
+            blockEnd = blockStart;
+        }
+        
+        return minOffset;
+    }
+    
+    
+    /**
+     * Find the end of the line that contains a byte offset
+     * 
+     * @param file
+     * The file to search
+     * 
+     * @param offset
+     * A byte offset in the file
+     * 
+     * @param buffer
+     * A buffer of at least {@value #SEARCH_BLOCK_SIZE} bytes
+     * 
+     * @return
+     * The offset following the first newline at or after offset, or the file
+     * length if there is no newline after offset
+     * 
+     * @throws IOException If an error occurred while reading
+     */
+    private static long findLineEnd(
+        RandomAccessFile file,
+        long offset,
+        byte[] buffer)
+        throws IOException
+    {
+        long blockStart = offset;
+        
+        file.seek(blockStart);
+        
+        int blockLength;
+        
+        while ((blockLength = file.read(buffer, 0, SEARCH_BLOCK_SIZE)) > 0)
+        {
+            for (int i = 0; i < blockLength; i++)
+            {
+                if (buffer[i] == '\n')
+                {
+                    return blockStart + i + 1;
+                }
+            }
+            
+            blockStart += blockLength;
+        }
+        
+        return blockStart;
+    }
+    
+    
+    /**
+     * Find the end of the input data: the end of the file's last non-empty
+     * line (including its terminator).  Only the end of the file is read.
+     * 
+     * @param file
+     * The file to search
+     * 
+     * @param dataStart
+     * The offset of the first data line
+     * 
+     * @param buffer
+     * A buffer of at least {@value #SEARCH_BLOCK_SIZE} bytes
+     * 
+     * @return
+     * The offset following the terminator of the last non-empty line at or
+     * after dataStart, or dataStart if there is no such line
+     * 
+     * @throws IOException If an error occurred while reading
+     */
+    private static long findDataEnd(
+        RandomAccessFile file,
+        long dataStart,
+        byte[] buffer)
+        throws IOException
+    {
+        long blockEnd = file.length();
+        
+        while (blockEnd > dataStart)
+        {
+            long blockStart = Math.max(dataStart, blockEnd - SEARCH_BLOCK_SIZE);
+            int blockLength = (int) (blockEnd - blockStart);
+            
+            file.seek(blockStart);
+            file.readFully(buffer, 0, blockLength);
+            
+            for (int i = blockLength - 1; i >= 0; i--)
+            {
+                if (buffer[i] != '\n' && buffer[i] != '\r')
+                {
+                    return findLineEnd(file, blockStart + i, buffer);
+                }
+            }
+            
+            blockEnd = blockStart;
+        }
+        
+        return dataStart;
+    }
+    
+    
+    /**
+     * Read a line, without its line terminator
+     * 
+     * @param file
+     * The file to read from
+     * 
+     * @param lineStart
+     * The offset of the line's first byte
+     * 
+     * @param lineEnd
+     * The offset following the line's last byte (including its terminator)
+     * 
+     * @return The line
+     * 
+     * @throws IOException If an error occurred while reading
+     */
+    private static String readLine(
+        RandomAccessFile file,
+        long lineStart,
+        long lineEnd)
+        throws IOException
+    {
+        byte[] bytes = new byte[(int) (lineEnd - lineStart)];
+        
+        file.seek(lineStart);
+        file.readFully(bytes);
+        
+        int length = bytes.length;
+        
+        while (length > 0 &&
+               (bytes[length - 1] == '\n' || bytes[length - 1] == '\r'))
+        {
+            length--;
+        }
+        
+        return new String(bytes, 0, length, Charset.defaultCharset());
+    }
+    
+    
+    /**
+     * Sample rows from an input data file, and compute and return an
+     * approximate ROLLUP summary view of the input data.  Each line contains a
+     * group's grouping column values, its estimated sum and the half-width of
+     * the sum's 95% confidence interval. <p>
+     * 
+     * PRECONDITIONS: <br>
+     * 1) The input data file starts with a column names header line, followed
+     *    by at least one data line <br>
+     * 2) The column names, grouping column names and sampled rows are valid,
+     *    as in {@link RollupSummarizer#summarize} <br>
+     * 3) No sampled line is empty
+     * 
+     * @param inputDataPath
+     * The input data file
+     * 
+     * @param columnDelimiter
+     * The column delimiter character expected in the input data
+     * 
+     * @param groupingColumnNames
+     * The names of the grouping columns, in grouping order
+     * 
+     * @return
+     * An approximate ROLLUP summary view of the table parsed from the input
+     * data
+     * 
+     * @throws IOException If an error occurred while reading
+     * 
+     * @throws RuntimeException If any of the above preconditions are not met
+     */
+    public String summarize(
+        String inputDataPath,
+        String columnDelimiter,
+        String[] groupingColumnNames)
+        throws IOException
+    {
+        try (RandomAccessFile file = new RandomAccessFile(inputDataPath, "r"))
+        {
+            byte[] buffer = new byte[SEARCH_BLOCK_SIZE];
+            
+            long dataStart = findLineEnd(file, 0, buffer);
+            long dataLength =
+                findDataEnd(file, dataStart, buffer) - dataStart;
+            
+            if (dataLength <= 0)
+            {
+                throw new RuntimeException(
+                    "The input data must contain at least two lines");
+            }
+            
+            String columnNamesLine = readLine(file, 0, dataStart);
+            String[] columnNames =
+                RollupSummarizer.getAndValidateColumnNames(columnNamesLine);
+            String valueColumnName = columnNames[columnNames.length - 1];
+            
+            RollupSummarizer.validateGroupingColumnNames(
+                groupingColumnNames,
+                valueColumnName);
+            
+            int[] groupingColumnIndices =
+                RollupSummarizer.getGroupingColumnIndices(
+                    columnNames,
+                    groupingColumnNames);
+            
+            // Sorted, so that the file is read front to back
+            
+            long[] offsets = new long[sampleSize];
+            
+            for (int i = 0; i < sampleSize; i++)
+            {
+                offsets[i] =
+                    dataStart + (long) (random.nextDouble() * dataLength);
+            }
+            
+            Arrays.sort(offsets);
+            
+            /* Read and parse the row containing each offset, and weight its
+             * value.  The weighted values, and their squares, are what each
+             * group's estimated sum and variance are computed from.  */
+            
+            Row[] weightedRows = new Row[sampleSize];
+            Row[] squaredWeightedRows = new Row[sampleSize];
+            
+            for (int i = 0; i < sampleSize; i++)
+            {
+                long lineStart =
+                    findLineStart(file, offsets[i], dataStart, buffer);
+                long lineEnd = findLineEnd(file, offsets[i], buffer);
+                
+                String line = readLine(file, lineStart, lineEnd);
+                
+                if (line.isEmpty())
+                {
+                    throw new RuntimeException(
+                        "Input data invalid: Row at byte offset " +
+                        lineStart +
+                        " is empty.  Only trailing empty lines are allowed " +
+                        "when sampling");
+                }
+                
+                Row row =
+                    RollupSummarizer.getRow(
+                        line,
+                        columnDelimiter,
+                        columnNames.length,
+                        "at byte offset ",
+                        lineStart);
+                
+                // The number of rows the sampled row stands for
+                double weight = (double) dataLength / (lineEnd - lineStart);
+                
+                double weightedValue = row.getValue() * weight;
+                
+                weightedRows[i] = row.withValue(weightedValue);
+                squaredWeightedRows[i] =
+                    row.withValue(weightedValue * weightedValue);
+            }
+            
+            GroupCollector sums = new GroupCollector();
+            GroupCollector sumsOfSquares = new GroupCollector();
+            
+            rollupSummarizer.rollup(weightedRows, groupingColumnIndices, sums);
+            rollupSummarizer.rollup(
+                squaredWeightedRows,
+                groupingColumnIndices,
+                sumsOfSquares);
+            
+            return getApproximateRollupSummary(
+                groupingColumnNames,
+                RollupSummarizer.getGroupingColumnNames(
+                    columnNames,
+                    groupingColumnIndices),
+                valueColumnName,
+                sums,
+                sumsOfSquares);
+        }
+    }
+    
+    
+    /**
+     * Format an approximate ROLLUP summary
+     * 
+     * @param headerGroupingColumnNames
+     * The grouping column names to put in the column header line, as given
+     * to {@link #summarize}
+     * 
+     * @param groupingColumnNames
+     * The names of the grouping columns, in grouping order
+     * 
+     * @param valueColumnName
+     * The name of the 'value' column
+     * 
+     * @param sums
+     * Each group's sum of the sampled rows' weighted values
+     * 
+     * @param sumsOfSquares
+     * Each group's sum of the sampled rows' squared weighted values, in the
+     * same order as sums
+     * 
+     * @return The approximate ROLLUP summary
+     */
+    private String getApproximateRollupSummary(
+        String[] headerGroupingColumnNames,
+        String[] groupingColumnNames,
+        String valueColumnName,
+        GroupCollector sums,
+        GroupCollector sumsOfSquares)
+    {
+        int numGroups = sums.groupingColumnValues.size();
+        
+        IntervalTextRollupSink sink =
+            new IntervalTextRollupSink(headerGroupingColumnNames);
+        
+        sink.beginSummary(groupingColumnNames, valueColumnName);
+        
+        for (int group = 0; group < numGroups; group++)
+        {
+            double sum = sums.sums[group];
+            double sumOfSquares = sumsOfSquares.sums[group];
+            
+            /* Every draw estimates the group sum (draws of other groups' rows
+             * estimate it as 0), so the estimate is the mean of the draws  */
+            
+            double estimate = sum / sampleSize;
+            
+            double variance =
+                (sumOfSquares - sum * estimate) /
+                ((double) sampleSize * (sampleSize - 1));
+            
+            double halfWidth = Z_95 * Math.sqrt(Math.max(0, variance));
+            
+            sink.group(
+                sums.groupingColumnValues.get(group),
+                estimate,
+                halfWidth);
+        }
+        
+        sink.endSummary();
+        
+        return sink.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package core;
+
+
+/**
+ * {@link SegmentedSums} that adds each group's values one at a time, in row
+ * order, so that each sum is the same, bit for bit, as adding the group's
+ * values to a running sum {@link Row} by {@link Row}
+ * 
+ * @author Dylan Jacobs
+ */
+final class ScalarSegmentedSums implements SegmentedSums
+{
+    @Override
+    public double sum(
+        double[] values,
+        int[] valueChangedIndices,
+        int numRows,
+        int groupingColumnIndex,
+        double sum,
+        double[] endedSums)
+    {
+        for (int row = 0; row < numRows; row++)
+        {
+            // If a group starts on this row
+            if (valueChangedIndices[row] <= groupingColumnIndex)
+            {
+                endedSums[row] = sum;
+                sum = values[row];
+            }
+            
+            else
+            {
+                sum += values[row];
+            }
+        }
+        
+        return sum;
+    }
+}
@@ -0,0 +1,56 @@
+package core;
+
+
+/**
+ * Computes the sums of one group size's groups over a block of {@link Row}s
+ * sorted by the grouping columns: a segmented sum of the block's value
+ * column, where each segment is a group.  Used by {@link RollupAccumulator},
+ * once per group size per block. <p>
+ * 
+ * {@link ScalarSegmentedSums} adds each segment's values one at a time, in
+ * row order.  Implementations that add them in another order (e.g. several
+ * at a time) can produce sums of fractional values that differ in their last
+ * digits.
+ * 
+ * @author Dylan Jacobs
+ */
+interface SegmentedSums
+{
+    /**
+     * Sum the values of each group of a group size over a block of
+     * {@link Row}s
+     * 
+     * @param values
+     * The block's value column
+     * 
+     * @param valueChangedIndices
+     * For each {@link Row} in the block, the first (most significant,
+     * smallest) grouping column index whose grouping column's value changed
+     * with respect to the previous {@link Row}, or the number of grouping
+     * columns if none changed.  A group of the group size starts on each
+     * {@link Row} whose index is not greater than groupingColumnIndex.
+     * 
+     * @param numRows
+     * The number of {@link Row}s in the block
+     * 
+     * @param groupingColumnIndex
+     * The grouping column index of the group size (the group size minus 1)
+     * 
+     * @param sum
+     * The sum of the group in progress at the start of the block
+     * 
+     * @param endedSums
+     * Receives, for each {@link Row} that starts a group, the sum of the group
+     * that ended on the previous {@link Row}.  Other elements are not
+     * written.
+     * 
+     * @return The sum of the group in progress at the end of the block
+     */
+    double sum(
+        double[] values,
+        int[] valueChangedIndices,
+        int numRows,
+        int groupingColumnIndex,
+        double sum,
+        double[] endedSums);
+}
@@ -0,0 +1,223 @@
+package core;
+
+
+/**
+ * A {@link RollupSink} that formats a ROLLUP summary as text: a line of
+ * space-delimited column names, followed by a line of tab-delimited grouping
+ * column values and the group's sum per group.  Aggregated grouping columns
+ * are left empty.  {@link RollupSummarizer#summarize(java.util.ArrayList,
+ * String, String[])} formats its text the same way.
+ * 
+ * @author Dylan Jacobs
+ */
+public class TextRollupSink implements RollupSink
+{
+    /**
+     * The ROLLUP summary text, without a trailing line separator
+     */
+    private final StringBuilder stringBuilder = new StringBuilder(1000);
+    
+    /**
+     * The grouping column names to put in the column header line in place of
+     * those passed to {@link #beginSummary}, or null to use those
+     */
+    private final String[] headerGroupingColumnNames;
+    
+    /**
+     * The number of grouping columns
+     */
+    private int numGroupingColumns;
+    
+    
+    /**
+     * Create a new {@link TextRollupSink}
+     */
+    public TextRollupSink()
+    {
+        this(null);
+    }
+    
+    
+    /**
+     * Create a new {@link TextRollupSink} whose column header line names the
+     * grouping columns as given, like {@link RollupSummarizer#summarize(
+     * java.util.ArrayList, String, String[])} does.  When no grouping column
+     * names are given, the header then names only the 'value' column, though
+     * the groups are still defined by all dimensional columns.
+     * 
+     * @param headerGroupingColumnNames {@link #headerGroupingColumnNames}
+     */
+    public TextRollupSink(String[] headerGroupingColumnNames)
+    {
+        this.headerGroupingColumnNames =
+            (headerGroupingColumnNames == null) ?
+                null :
+                headerGroupingColumnNames.clone();
+    }
+    
+    
+    /**
+     * Format a ROLLUP summary column header line
+     * 
+     * @param groupingColumnNames
+     * The names of the grouping columns, in grouping order
+     * 
+     * @param valueColumnName
+     * The name of the 'value' column
+     * 
+     * @return The ROLLUP summary column header line
+     */
+    static final String formatColumnHeader(
+        String[] groupingColumnNames, 
+        String valueColumnName)
+    {
+        int numGroupingColumns = groupingColumnNames.length;
+        
+        StringBuilder stringBuilder = 
+            new StringBuilder((numGroupingColumns + 1) * 20);
+        
+        for (int i = 0; i < numGroupingColumns; i++)
+        {
+            stringBuilder.append(groupingColumnNames[i]);
+            stringBuilder.append(" ");
+        }
+        
+        stringBuilder.append(valueColumnName);
+        
+        return stringBuilder.toString();
+    }
+    
+    
+    /**
+     * Append a group's line, without a line separator, to a
+     * {@link StringBuilder}
+     * 
+     * @param stringBuilder
+     * The {@link StringBuilder} to append the group's line to
+     * 
+     * @param groupingColumnValues
+     * The values of the grouping columns, in grouping order.  Only the first
+     * level values are used.
+     * 
+     * @param level
+     * The number of grouping columns that define the group (0 for the total)
+     * 
+     * @param numGroupingColumns
+     * The number of grouping columns
+     * 
+     * @param sum
+     * The sum of the values of the group's rows
+     */
+    static final void appendGroupLine(
+        StringBuilder stringBuilder,
+        String[] groupingColumnValues,
+        int level,
+        int numGroupingColumns,
+        double sum)
+    {
+        for (int i = 0; i < level; i++)
+        {
+            stringBuilder.append(groupingColumnValues[i]);
+            stringBuilder.append('\t');
+        }
+        
+        // Add tab characters for aggregated grouping columns
+        for (int i = level; i < numGroupingColumns; i++)
+        {
+            stringBuilder.append('\t');
+        }
+        
+        // Add the group sum (aggregated value)
+        RollupSummarizer.appendNumber(stringBuilder, sum);
+    }
+    
+    
+    /**
+     * Get the ROLLUP summary column header line <p>
+     * 
+     * Override to customize
+     * 
+     * @param groupingColumnNames
+     * The names of the grouping columns, in grouping order
+     * 
+     * @param valueColumnName
+     * The name of the 'value' column
+     * 
+     * @return The ROLLUP summary column header line
+     */
+    protected String getRollupSummaryColumnHeader(
+        String[] groupingColumnNames, 
+        String valueColumnName)
+    {
+        return formatColumnHeader(groupingColumnNames, valueColumnName);
+    }
+    
+    
+    /**
+     * Append a group's line, without a line separator, to a
+     * {@link StringBuilder} <p>
+     * 
+     * Override to customize
+     * 
+     * @param stringBuilder
+     * The {@link StringBuilder} to append the group's line to
+     * 
+     * @param groupingColumnValues
+     * The values of the grouping columns that define the group
+     * 
+     * @param sum
+     * The sum of the values of the group's rows
+     */
+    protected void appendGroup(
+        StringBuilder stringBuilder,
+        String[] groupingColumnValues,
+        double sum)
+    {
+        appendGroupLine(
+            stringBuilder,
+            groupingColumnValues,
+            groupingColumnValues.length,
+            numGroupingColumns,
+            sum);
+    }
+    
+    
+    @Override
+    public void beginSummary(
+        String[] groupingColumnNames,
+        String valueColumnName)
+    {
+        numGroupingColumns = groupingColumnNames.length;
+        
+        stringBuilder.append(
+            getRollupSummaryColumnHeader(
+                (headerGroupingColumnNames == null) ?
+                    groupingColumnNames :
+                    headerGroupingColumnNames,
+                valueColumnName));
+    }
+    
+    
+    @Override
+    public void group(String[] groupingColumnValues, double sum)
+    {
+        stringBuilder.append(System.lineSeparator());
+        
+        appendGroup(stringBuilder, groupingColumnValues, sum);
+    }
+    
+    
+    @Override
+    public void endSummary()
+    {}
+    
+    
+    /**
+     * @return The ROLLUP summary text, without a trailing line separator
+     */
+    @Override
+    public String toString()
+    {
+        return stringBuilder.toString();
+    }
+}
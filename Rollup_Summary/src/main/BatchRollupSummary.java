@@ -0,0 +1,381 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import core.RollupSummarizer;
+
+
+/**
+ * The entry point for running many ROLLUP summaries in a single process.
+ * Reads a job manifest, runs each job on a fixed pool of worker threads, and
+ * prints a report with each job's status and timing.
+ * 
+ * @author Dylan Jacobs
+ */
+public final class BatchRollupSummary
+{
+    /**
+     * The column delimiter character expected in the input data
+     */
+    private static final String COLUMN_DELIMITER = "\t";
+    
+    /**
+     * The prefix of comment lines in the job manifest
+     */
+    private static final String MANIFEST_COMMENT_PREFIX = "#";
+    
+    /**
+     * The program's usage message
+     */
+    private static final String USAGE =
+        "Usage: BatchRollupSummary job_manifest [num_threads]";
+    
+    /**
+     * The input data lines of the job running on each worker thread.  Reused
+     * from job to job, so that its capacity is only grown once.  Only the list
+     * is reused: each job still reads its own line strings and parses its own
+     * {@link core.Row}s.
+     */
+    private static final ThreadLocal<ArrayList<String>> INPUT_DATA_LINES =
+        new ThreadLocal<ArrayList<String>>()
+        {
+            @Override
+            protected ArrayList<String> initialValue()
+            {
+                return new ArrayList<String>();
+            }
+        };
+    
+    
+    /**
+     * A single job in the job manifest: an input file to summarize, the
+     * grouping column names to summarize it by, and the file to write the
+     * ROLLUP summary to
+     */
+    private static final class Job implements Callable<String>
+    {
+        /**
+         * The job's line number in the job manifest
+         */
+        private final int lineNumber;
+        
+        /**
+         * The input data file
+         */
+        private final Path inputPath;
+        
+        /**
+         * The names of the grouping columns, in grouping order
+         */
+        private final String[] groupingColumnNames;
+        
+        /**
+         * The ROLLUP summary output file
+         */
+        private final Path outputPath;
+        
+        /**
+         * The summarizer shared by all jobs
+         */
+        private final RollupSummarizer rollupSummarizer;
+        
+        /**
+         * Whether the job failed.  Set when the job has run.
+         */
+        private boolean failed;
+        
+        
+        /**
+         * Create a new {@link Job}
+         * 
+         * @param lineNumber {@link #lineNumber}
+         * @param inputPath {@link #inputPath}
+         * @param groupingColumnNames {@link #groupingColumnNames}
+         * @param outputPath {@link #outputPath}
+         * @param rollupSummarizer {@link #rollupSummarizer}
+         */
+        private Job(
+            int lineNumber,
+            Path inputPath,
+            String[] groupingColumnNames,
+            Path outputPath,
+            RollupSummarizer rollupSummarizer)
+        {
+            this.lineNumber = lineNumber;
+            this.inputPath = inputPath;
+            this.groupingColumnNames = groupingColumnNames;
+            this.outputPath = outputPath;
+            this.rollupSummarizer = rollupSummarizer;
+        }
+        
+        
+        /**
+         * Run the job
+         * 
+         * @return The job's report line
+         */
+        @Override
+        public String call()
+        {
+            long startTime = System.nanoTime();
+            
+            String status;
+            
+            try
+            {
+                summarize();
+                status = "OK";
+            }
+            
+            catch (Throwable t)
+            {
+                failed = true;
+                status =
+                    "FAILED (" +
+                    t.getClass().getSimpleName() + ": " + t.getMessage() +
+                    ")";
+            }
+            
+            long elapsedMillis = (System.nanoTime() - startTime) / 1000000;
+            
+            return lineNumber + "\t" +
+                   elapsedMillis + " ms\t" +
+                   inputPath + "\t" +
+                   outputPath + "\t" +
+                   status;
+        }
+        
+        
+        /**
+         * Read the input data file, compute its ROLLUP summary and write the
+         * ROLLUP summary to the output file
+         * 
+         * @throws IOException
+         * If an error occurred while reading or writing a file
+         */
+        private void summarize() throws IOException
+        {
+            ArrayList<String> inputDataLines = INPUT_DATA_LINES.get();
+            inputDataLines.clear();
+            
+            try
+            {
+                try (BufferedReader reader =
+                         Files.newBufferedReader(
+                             inputPath,
+                             Charset.defaultCharset()))
+                {
+                    RollupSummary.readInputData(reader, inputDataLines);
+                }
+                
+                String rollupSummary =
+                    rollupSummarizer.summarize(
+                        inputDataLines,
+                        COLUMN_DELIMITER,
+                        groupingColumnNames);
+                
+                try (BufferedWriter writer =
+                         Files.newBufferedWriter(
+                             outputPath,
+                             Charset.defaultCharset()))
+                {
+                    writer.write(rollupSummary);
+                    writer.newLine();
+                }
+            }
+            
+            finally
+            {
+                // Release the lines, but keep the list's capacity
+                inputDataLines.clear();
+            }
+        }
+    }
+    
+    
+    /**
+     * Read and parse the job manifest.  Each non-empty line that is not a
+     * comment (starting with {@value #MANIFEST_COMMENT_PREFIX}) defines a job
+     * as whitespace-delimited fields: the input file, the grouping column
+     * names (in grouping order, possibly none) and the output file.
+     * 
+     * @param manifestPath
+     * The job manifest file
+     * 
+     * @param rollupSummarizer
+     * The summarizer shared by all jobs
+     * 
+     * @return The jobs, in manifest order
+     * 
+     * @throws RuntimeException
+     * If the job manifest cannot be read, or a line has fewer than two fields
+     */
+    private static final List<Job> readJobs(
+        Path manifestPath,
+        RollupSummarizer rollupSummarizer)
+    {
+        List<String> manifestLines;
+        
+        try
+        {
+            manifestLines =
+                Files.readAllLines(manifestPath, Charset.defaultCharset());
+        }
+        
+        catch (IOException e)
+        {
+            throw new RuntimeException(
+                "An error occurred while reading the job manifest.  Exiting...",
+                e);
+        }
+        
+        ArrayList<Job> jobs = new ArrayList<Job>(manifestLines.size());
+        
+        for (int i = 0; i < manifestLines.size(); i++)
+        {
+            String line = manifestLines.get(i).trim();
+            
+            if (line.isEmpty() || line.startsWith(MANIFEST_COMMENT_PREFIX))
+            {
+                continue;
+            }
+            
+            String[] fields = line.split("\\s+");
+            
+            if (fields.length < 2)
+            {
+                throw new RuntimeException(
+                    "Job manifest invalid: Line " +
+                    (i + 1) +
+                    " must contain an input file and an output file.  " +
+                    "Exiting...");
+            }
+            
+            String[] groupingColumnNames =
+                Arrays.copyOfRange(fields, 1, fields.length - 1);
+            
+            Job job =
+                new Job(
+                    i + 1,
+                    Paths.get(fields[0]),
+                    groupingColumnNames,
+                    Paths.get(fields[fields.length - 1]),
+                    rollupSummarizer);
+            
+            jobs.add(job);
+        }
+        
+        return jobs;
+    }
+    
+    
+    /**
+     * The BatchRollupSummary entry point.  Prints one report line per job, in
+     * manifest order, followed by a totals line.  Exits with status 1 if any
+     * job failed.
+     * 
+     * @param args
+     * The job manifest file, optionally followed by the number of worker
+     * threads (defaults to the number of available processors)
+     */
+    public static void main(String[] args)
+    {
+        if (args.length < 1 || args.length > 2)
+        {
+            throw new RuntimeException(USAGE);
+        }
+        
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        
+        if (args.length > 1)
+        {
+            try
+            {
+                numThreads = Integer.parseInt(args[1]);
+            }
+            
+            catch (NumberFormatException e)
+            {
+                numThreads = 0;
+            }
+            
+            if (numThreads < 1)
+            {
+                throw new RuntimeException(
+                    "The number of threads must be a positive integer.  " +
+                    USAGE);
+            }
+        }
+        
+        long startTime = System.nanoTime();
+        
+        RollupSummarizer rollupSummarizer = new RollupSummarizer();
+        
+        List<Job> jobs = readJobs(Paths.get(args[0]), rollupSummarizer);
+        
+        ExecutorService executorService =
+            Executors.newFixedThreadPool(numThreads);
+        
+        int numFailedJobs = 0;
+        
+        try
+        {
+            List<Future<String>> reports = executorService.invokeAll(jobs);
+            
+            for (int i = 0; i < reports.size(); i++)
+            {
+                System.out.println(reports.get(i).get());
+                
+                if (jobs.get(i).failed)
+                {
+                    numFailedJobs++;
+                }
+            }
+        }
+        
+        catch (InterruptedException | ExecutionException e)
+        {
+            throw new RuntimeException(
+                "The batch was interrupted.  Exiting...",
+                e);
+        }
+        
+        finally
+        {
+            executorService.shutdown();
+        }
+        
+        long elapsedMillis = (System.nanoTime() - startTime) / 1000000;
+        
+        System.out.println(
+            jobs.size() + " jobs, " +
+            numFailedJobs + " failed, " +
+            elapsedMillis + " ms");
+        
+        if (numFailedJobs > 0)
+        {
+            System.exit(1);
+        }
+    }
+    
+    
+    /**
+     * Prevent instantiation
+     */
+    private BatchRollupSummary()
+    {}
+}
@@ -1,9 +1,19 @@
 package main;
 
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.Random;
 
+import core.BinaryRollupSink;
+import core.PruningRollupSink;
+import core.RollupSink;
 import core.RollupSummarizer;
+import core.SampledRollupSummarizer;
+import core.TextRollupSink;
 
 
 /**
@@ -17,30 +27,75 @@ public final class RollupSummary
      * The column delimiter character expected in the input data
      */
     private static final String COLUMN_DELIMITER = "\t";
+    
+    /**
+     * The prefix of the program arguments that are options
+     */
+    private static final String OPTION_PREFIX = "--";
+    
+    /**
+     * The option that selects the binary output format (see
+     * {@link BinaryRollupSink})
+     */
+    private static final String BINARY_OPTION = "--binary";
+    
+    /**
+     * The option that limits the number of groups printed per containing
+     * group (see {@link PruningRollupSink})
+     */
+    private static final String TOP_OPTION = "--top";
+    
+    /**
+     * The option that sets the minimum sum of a printed group (see
+     * {@link PruningRollupSink})
+     */
+    private static final String MIN_SUM_OPTION = "--min-sum";
+    
+    /**
+     * The option that selects an input data file to read instead of standard
+     * input
+     */
+    private static final String INPUT_OPTION = "--input";
+    
+    /**
+     * The option that selects an approximate ROLLUP summary of a sample of the
+     * input data file's rows (see {@link SampledRollupSummarizer})
+     */
+    private static final String SAMPLE_OPTION = "--sample";
+    
+    /**
+     * The option that seeds the random sampling of rows, so that an
+     * approximate ROLLUP summary can be reproduced
+     */
+    private static final String SEED_OPTION = "--seed";
 
     
     /**
-     * Read lines from standard input and store each line in a list.  Stop when
-     * an empty line is encountered, or when standard input has no more data. <p>
+     * Read lines from a reader and store each line in the provided list.  Stop
+     * when an empty line is encountered, or when the reader has no more data. <p>
      * 
      * PRECONDITION: At least two lines must be read
      * 
-     * @return The lines read from standard input
+     * @param reader
+     * The reader to read lines from
+     * 
+     * @param lines
+     * The list to store the lines in (should be empty)
      * 
      * @throws RuntimeException 
      * If an error occurred while reading input data, or if fewer than two lines
      * were read
      */
-    private static final ArrayList<String> readInputData()
-    {        
-        ArrayList<String> lines = new ArrayList<String>();
-        
-        try (Scanner scanner = new Scanner(System.in))
-        {           
-            while (scanner.hasNextLine())
+    static final void readInputData(
+        BufferedReader reader,
+        ArrayList<String> lines)
+    {
+        try
+        {
+            String line;
+            
+            while ((line = reader.readLine()) != null)
             {
-                String line = scanner.nextLine();
-                
                 if (line.isEmpty())
                 {
                     break;
@@ -53,36 +108,284 @@ public final class RollupSummary
         catch (Throwable t)
         {
             throw new RuntimeException(
-                "An error occurred while reading the input data.  Exiting...",
+                "An error occurred while reading the input data.",
                 t);
         }
         
         if (lines.size() < 2)
         {
             throw new RuntimeException(
-                "The input data must contain at least two lines.  Exiting...");
+                "The input data must contain at least two lines.");
+        }
+    }
+    
+    
+    /**
+     * Read lines from an input data file, or from standard input, and store
+     * each line in a list.  Stop when an empty line is encountered, or when
+     * there is no more data. <p>
+     * 
+     * PRECONDITION: At least two lines must be read
+     * 
+     * @param inputDataPath
+     * The input data file, or null to read from standard input
+     * 
+     * @return The lines read
+     * 
+     * @throws RuntimeException 
+     * If an error occurred while reading input data, or if fewer than two lines
+     * were read
+     */
+    private static final ArrayList<String> readInputData(String inputDataPath)
+    {        
+        ArrayList<String> lines = new ArrayList<String>();
+        
+        try (BufferedReader reader = 
+                 (inputDataPath == null) ?
+                     new BufferedReader(new InputStreamReader(System.in)) :
+                     new BufferedReader(new FileReader(inputDataPath)))
+        {           
+            readInputData(reader, lines);
+        }
+        
+        catch (IOException e)
+        {
+            throw new RuntimeException(
+                "An error occurred while reading the input data.  Exiting...",
+                e);
+        }
+        
+        catch (RuntimeException e)
+        {
+            throw new RuntimeException(
+                e.getMessage() + "  Exiting...",
+                e.getCause());
         }
         
         return lines;
     }
 
     
+    /**
+     * Get the value of an option that takes a value
+     * 
+     * @param args
+     * The program arguments
+     * 
+     * @param optionIndex
+     * The index of the option in args
+     * 
+     * @return The argument following the option
+     * 
+     * @throws RuntimeException If the option is the last argument
+     */
+    private static final String getOptionValue(String[] args, int optionIndex)
+    {
+        if (optionIndex + 1 >= args.length)
+        {
+            throw new RuntimeException(
+                "Option " + args[optionIndex] + " requires a value.  Exiting...");
+        }
+        
+        return args[optionIndex + 1];
+    }
+    
+    
     /**
      * The RollupSummary entry point
      * 
      * @param args
-     * The column names that should be used for grouping, in grouping order
+     * Any options, followed by the column names that should be used for
+     * grouping, in grouping order.  The options are: <br>
+     * {@value #BINARY_OPTION} - Print the ROLLUP summary in the binary format <br>
+     * {@value #TOP_OPTION} N - Print at most the N groups with the largest sums
+     * per containing group <br>
+     * {@value #MIN_SUM_OPTION} X - Print only the groups with sums of at least X
+     * <br>
+     * {@value #INPUT_OPTION} FILE - Read the input data from FILE instead of
+     * standard input <br>
+     * {@value #SAMPLE_OPTION} N - Print an approximate ROLLUP summary of N
+     * rows sampled from the {@value #INPUT_OPTION} file, with 95% confidence
+     * intervals <br>
+     * {@value #SEED_OPTION} S - Seed the random sampling of rows with S
      */
     public static void main(String[] args) 
     {
-        ArrayList<String> inputDataLines = readInputData();
+        boolean binaryOutput = false;
+        int maxGroupsPerContainingGroup = Integer.MAX_VALUE;
+        double minSum = Double.NEGATIVE_INFINITY;
+        boolean pruning = false;
+        String inputDataPath = null;
+        boolean sampling = false;
+        int sampleSize = 0;
+        Random random = new Random();
+        boolean seeded = false;
+        
+        int numOptions = 0;
+        
+        while (numOptions < args.length && 
+               args[numOptions].startsWith(OPTION_PREFIX))
+        {
+            String option = args[numOptions];
+            
+            try
+            {
+                if (option.equals(BINARY_OPTION))
+                {
+                    binaryOutput = true;
+                }
+                
+                else if (option.equals(TOP_OPTION))
+                {
+                    maxGroupsPerContainingGroup = 
+                        Integer.parseInt(getOptionValue(args, numOptions++));
+                    pruning = true;
+                }
+                
+                else if (option.equals(MIN_SUM_OPTION))
+                {
+                    minSum = 
+                        Double.parseDouble(getOptionValue(args, numOptions++));
+                    pruning = true;
+                }
+                
+                else if (option.equals(INPUT_OPTION))
+                {
+                    inputDataPath = getOptionValue(args, numOptions++);
+                }
+                
+                else if (option.equals(SAMPLE_OPTION))
+                {
+                    sampleSize = 
+                        Integer.parseInt(getOptionValue(args, numOptions++));
+                    sampling = true;
+                }
+                
+                else if (option.equals(SEED_OPTION))
+                {
+                    random = 
+                        new Random(
+                            Long.parseLong(getOptionValue(args, numOptions++)));
+                    seeded = true;
+                }
+                
+                else
+                {
+                    throw new RuntimeException(
+                        "Unknown option " + option + ".  Exiting...");
+                }
+            }
+            
+            catch (NumberFormatException e)
+            {
+                throw new RuntimeException(
+                    "The value of option " + 
+                    option + 
+                    " is not a number.  Exiting...");
+            }
+            
+            numOptions++;
+        }
+        
+        String[] groupingColumnNames = 
+            Arrays.copyOfRange(args, numOptions, args.length);
+        
+        if (seeded && ! sampling)
+        {
+            throw new RuntimeException(
+                "Option " + 
+                SEED_OPTION + 
+                " requires option " +
+                SAMPLE_OPTION +
+                ".  Exiting...");
+        }
+        
+        if (sampling)
+        {
+            if (inputDataPath == null || binaryOutput || pruning)
+            {
+                throw new RuntimeException(
+                    "Option " + 
+                    SAMPLE_OPTION + 
+                    " requires option " +
+                    INPUT_OPTION +
+                    ", and cannot be combined with other options.  " +
+                    "Exiting...");
+            }
+            
+            SampledRollupSummarizer sampledRollupSummarizer = 
+                new SampledRollupSummarizer(sampleSize, random);
+            
+            try
+            {
+                System.out.println(
+                    sampledRollupSummarizer.summarize(
+                        inputDataPath, 
+                        COLUMN_DELIMITER, 
+                        groupingColumnNames));
+            }
+            
+            catch (IOException e)
+            {
+                throw new RuntimeException(
+                    "An error occurred while reading the input data.  " +
+                    "Exiting...",
+                    e);
+            }
+            
+            return;
+        }
+        
+        ArrayList<String> inputDataLines = readInputData(inputDataPath);
 
         RollupSummarizer rollupSummarizer = new RollupSummarizer();
         
-        String rollupSummary =
-            rollupSummarizer.summarize(inputDataLines, COLUMN_DELIMITER, args);
+        if (! binaryOutput && ! pruning)
+        {
+            String rollupSummary = 
+                rollupSummarizer.summarize(
+                    inputDataLines, 
+                    COLUMN_DELIMITER, 
+                    groupingColumnNames);
+            
+            System.out.println(rollupSummary);
+            
+            return;
+        }
+        
+        TextRollupSink textRollupSink = null;
+        RollupSink sink;
+        
+        if (binaryOutput)
+        {
+            sink = new BinaryRollupSink(System.out);
+        }
+        
+        else
+        {
+            textRollupSink = new TextRollupSink(groupingColumnNames);
+            sink = textRollupSink;
+        }
+        
+        if (pruning)
+        {
+            sink = 
+                new PruningRollupSink(
+                    sink, 
+                    maxGroupsPerContainingGroup, 
+                    minSum);
+        }
+        
+        rollupSummarizer.summarize(
+            inputDataLines, 
+            COLUMN_DELIMITER, 
+            groupingColumnNames,
+            sink);
         
-        System.out.println(rollupSummary);
+        if (textRollupSink != null)
+        {
+            System.out.println(textRollupSink);
+        }
     }
     
     
@@ -0,0 +1,205 @@
+package core;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+
+/**
+ * Computes a ROLLUP summary from a stream of {@link Row}s, and publishes its
+ * groups to subscribers as {@link RollupRecord}s, without building any text.
+ * The {@link Row}s must arrive sorted by the grouping columns; each group is
+ * published as soon as the first {@link Row} after it arrives, so subscribers
+ * receive the first groups while {@link Row}s are still arriving. <p>
+ * 
+ * {@link Row}s are taken either from an {@link Iterator} (see
+ * {@link #publish}), or by subscribing this publisher to a
+ * {@link Flow.Publisher} of {@link Row}s.  Either way, the publisher honors
+ * backpressure: once a subscriber's buffer is full, no more {@link Row}s are
+ * taken until the subscriber requests more {@link RollupRecord}s. <p>
+ * 
+ * Subscribe before {@link Row}s start arriving: groups published while there
+ * are no subscribers are dropped.  If the {@link Row}s are not sorted,
+ * subscribers receive an error. <p>
+ * 
+ * {@link Flow} requires JDK 9, so this class is kept in its own source
+ * directory, and the rest of the project still builds on JDK 8.
+ * 
+ * @author Dylan Jacobs
+ */
+public class RollupPublisher 
+    extends SubmissionPublisher<RollupRecord>
+    implements Flow.Processor<Row, RollupRecord>
+{
+    /**
+     * Computes the ROLLUP summary, and publishes its groups
+     */
+    private final RollupAccumulator rollupAccumulator;
+    
+    /**
+     * The subscription to the {@link Flow.Publisher} of {@link Row}s, or null
+     * if not subscribed
+     */
+    private Flow.Subscription subscription;
+    
+    
+    /**
+     * Create a new {@link RollupPublisher}
+     * 
+     * @param groupingColumnIndices
+     * The column indices to use for grouping, in grouping order
+     * 
+     * @param executor
+     * The executor that delivers {@link RollupRecord}s to subscribers
+     * 
+     * @param maxBufferCapacity
+     * The maximum number of {@link RollupRecord}s buffered per subscriber
+     * 
+     * @throws RuntimeException If groupingColumnIndices is empty
+     */
+    public RollupPublisher(
+        int[] groupingColumnIndices,
+        Executor executor,
+        int maxBufferCapacity)
+    {
+        super(executor, maxBufferCapacity);
+        
+        RollupSink sink = 
+            new RollupSink()
+            {
+                @Override
+                public void beginSummary(
+                    String[] groupingColumnNames, 
+                    String valueColumnName)
+                {}
+                
+                
+                @Override
+                public void group(String[] groupingColumnValues, double sum)
+                {
+                    // Blocks while a subscriber's buffer is full
+                    submit(new RollupRecord(groupingColumnValues, sum));
+                }
+                
+                
+                @Override
+                public void endSummary()
+                {}
+            };
+        
+        // Blocks of one row, so that each group is published without delay
+        this.rollupAccumulator = 
+            new RollupAccumulator(groupingColumnIndices, sink, 1);
+    }
+    
+    
+    /**
+     * Create a new {@link RollupPublisher} that delivers {@link RollupRecord}s
+     * using {@link ForkJoinPool#commonPool()}, and buffers up to
+     * {@link Flow#defaultBufferSize()} {@link RollupRecord}s per subscriber
+     * 
+     * @param groupingColumnIndices
+     * The column indices to use for grouping, in grouping order
+     * 
+     * @throws RuntimeException If groupingColumnIndices is empty
+     */
+    public RollupPublisher(int[] groupingColumnIndices)
+    {
+        this(
+            groupingColumnIndices, 
+            ForkJoinPool.commonPool(), 
+            Flow.defaultBufferSize());
+    }
+    
+    
+    /**
+     * Take all {@link Row}s from an {@link Iterator}, publish the ROLLUP
+     * summary's groups, and close this publisher.  Runs on the calling thread,
+     * and blocks while a subscriber's buffer is full.
+     * 
+     * @param rows
+     * The {@link Row}s, sorted by the grouping columns
+     */
+    public void publish(Iterator<Row> rows)
+    {
+        try
+        {
+            while (rows.hasNext())
+            {
+                rollupAccumulator.add(rows.next());
+            }
+            
+            rollupAccumulator.finish();
+        }
+        
+        catch (RuntimeException e)
+        {
+            closeExceptionally(e);
+            return;
+        }
+        
+        close();
+    }
+    
+    
+    @Override
+    public void onSubscribe(Flow.Subscription subscription)
+    {
+        if (this.subscription != null)
+        {
+            subscription.cancel();
+            return;
+        }
+        
+        this.subscription = subscription;
+        
+        subscription.request(1);
+    }
+    
+    
+    @Override
+    public void onNext(Row row)
+    {
+        try
+        {
+            rollupAccumulator.add(row);
+        }
+        
+        catch (RuntimeException e)
+        {
+            subscription.cancel();
+            closeExceptionally(e);
+            return;
+        }
+        
+        // Only request the next row once this row's groups are published
+        subscription.request(1);
+    }
+    
+    
+    @Override
+    public void onError(Throwable throwable)
+    {
+        closeExceptionally(throwable);
+    }
+    
+    
+    @Override
+    public void onComplete()
+    {
+        try
+        {
+            rollupAccumulator.finish();
+        }
+        
+        catch (RuntimeException e)
+        {
+            closeExceptionally(e);
+            return;
+        }
+        
+        close();
+    }
+}
@@ -0,0 +1,189 @@
+package core;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * {@link SegmentedSums} that uses the incubating Vector API: group starts are
+ * found by comparing several value changed indices at a time, and each
+ * group's values are added several at a time (one lane per value) before the
+ * lanes are reduced. <p>
+ * 
+ * Because a group's values are not added in row order, sums of fractional
+ * values can differ in their last digits from {@link ScalarSegmentedSums}'.
+ * Selected by {@link RollupAccumulator} when the
+ * {@value RollupAccumulator#VECTOR_SEGMENTED_SUMS_PROPERTY} system property
+ * is "true". <p>
+ * 
+ * The Vector API requires JDK 16 or later, and the jdk.incubator.vector
+ * module (--add-modules jdk.incubator.vector) when compiling and running, so
+ * this class is kept in its own source directory, and the rest of the
+ * project still builds on JDK 8.
+ * 
+ * @author Dylan Jacobs
+ */
+final class VectorSegmentedSums implements SegmentedSums
+{
+    /**
+     * The preferred species of the value column's vectors
+     */
+    private static final VectorSpecies<Double> DOUBLE_SPECIES =
+        DoubleVector.SPECIES_PREFERRED;
+    
+    /**
+     * The preferred species of the value changed indices' vectors
+     */
+    private static final VectorSpecies<Integer> INT_SPECIES =
+        IntVector.SPECIES_PREFERRED;
+    
+    
+    /**
+     * Create a new {@link VectorSegmentedSums}
+     */
+    VectorSegmentedSums()
+    {}
+    
+    
+    /**
+     * Find the first {@link Row} that starts a group of a group size
+     * 
+     * @param valueChangedIndices
+     * For each {@link Row} in the block, the first grouping column index
+     * whose grouping column's value changed
+     * 
+     * @param fromRow
+     * The first {@link Row} to search
+     * 
+     * @param numRows
+     * The number of {@link Row}s in the block
+     * 
+     * @param groupingColumnIndex
+     * The grouping column index of the group size
+     * 
+     * @return
+     * The index of the first {@link Row} at or after fromRow that starts a
+     * group, or numRows if there is none
+     */
+    private static int findGroupStart(
+        int[] valueChangedIndices,
+        int fromRow,
+        int numRows,
+        int groupingColumnIndex)
+    {
+        int row = fromRow;
+        int upperBound = fromRow + INT_SPECIES.loopBound(numRows - fromRow);
+        
+        for (; row < upperBound; row += INT_SPECIES.length())
+        {
+            VectorMask<Integer> groupStarts =
+                IntVector.fromArray(INT_SPECIES, valueChangedIndices, row)
+                    .compare(VectorOperators.LE, groupingColumnIndex);
+            
+            if (groupStarts.anyTrue())
+            {
+                return row + groupStarts.firstTrue();
+            }
+        }
+        
+        for (; row < numRows; row++)
+        {
+            if (valueChangedIndices[row] <= groupingColumnIndex)
+            {
+                return row;
+            }
+        }
+        
+        return numRows;
+    }
+    
+    
+    /**
+     * Sum a range of values
+     * 
+     * @param values
+     * The block's value column
+     * 
+     * @param fromRow
+     * The first {@link Row} of the range
+     * 
+     * @param toRow
+     * The {@link Row} after the last {@link Row} of the range
+     * 
+     * @return The sum of the range's values
+     */
+    private static double sumRange(double[] values, int fromRow, int toRow)
+    {
+        int row = fromRow;
+        int upperBound = fromRow + DOUBLE_SPECIES.loopBound(toRow - fromRow);
+        
+        double sum = 0;
+        
+        if (row < upperBound)
+        {
+            DoubleVector sums = DoubleVector.zero(DOUBLE_SPECIES);
+            
+            for (; row < upperBound; row += DOUBLE_SPECIES.length())
+            {
+                sums =
+                    sums.add(
+                        DoubleVector.fromArray(DOUBLE_SPECIES, values, row));
+            }
+            
+            sum = sums.reduceLanes(VectorOperators.ADD);
+        }
+        
+        for (; row < toRow; row++)
+        {
+            sum += values[row];
+        }
+        
+        return sum;
+    }
+    
+    
+    @Override
+    public double sum(
+        double[] values,
+        int[] valueChangedIndices,
+        int numRows,
+        int groupingColumnIndex,
+        double sum,
+        double[] endedSums)
+    {
+        int row = 0;
+        
+        while (row < numRows)
+        {
+            // If a group starts on this row
+            if (valueChangedIndices[row] <= groupingColumnIndex)
+            {
+                endedSums[row] = sum;
+                sum = values[row];
+            }
+            
+            else
+            {
+                sum += values[row];
+            }
+            
+            // Add the rest of the group's values in this block
+            
+            int groupEnd =
+                findGroupStart(
+                    valueChangedIndices,
+                    row + 1,
+                    numRows,
+                    groupingColumnIndex);
+            
+            sum += sumRange(values, row + 1, groupEnd);
+            
+            row = groupEnd;
+        }
+        
+        return sum;
+    }
+}